@@ -0,0 +1,97 @@
+package com.codetogether.backend.benchmark;
+
+import com.codetogether.backend.config.ClusterProperties;
+import com.codetogether.backend.security.StompPrincipal;
+import com.codetogether.backend.service.BroadcastService;
+import com.codetogether.backend.service.DocumentEngine;
+import com.codetogether.backend.service.RoomReplayService;
+import com.codetogether.backend.service.WriteBehindService;
+import com.codetogether.backend.service.impl.RendezvousRoomRoutingService;
+import com.codetogether.backend.service.impl.RingBufferRoomReplayService;
+import com.codetogether.backend.service.impl.SerializeOnceBroadcastService;
+import com.codetogether.backend.websocket.PrebuiltJacksonMessageConverter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+/**
+ * Collaborators for driving controllers and services outside Spring.
+ */
+final class BenchmarkSupport {
+
+    // Same modules as the Boot-configured ObjectMapper
+    static final ObjectMapper OBJECT_MAPPER = Jackson2ObjectMapperBuilder.json().build();
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Template that serializes payloads to JSON like the real broker setup, then drops them.
+     */
+    static SimpMessagingTemplate jsonTemplate() {
+        SimpMessagingTemplate template = new SimpMessagingTemplate((message, timeout) -> true);
+        template.setMessageConverter(new PrebuiltJacksonMessageConverter(OBJECT_MAPPER));
+        return template;
+    }
+
+    static BroadcastService broadcastService() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        // Numbers room broadcasts under the room lock; outside Spring its capacity is 0, so nothing is kept
+        return new SerializeOnceBroadcastService(jsonTemplate(), OBJECT_MAPPER,
+                new RingBufferRoomReplayService(singleNode(), meterRegistry), meterRegistry);
+    }
+
+    static RoomReplayService replayService() {
+        return new RingBufferRoomReplayService(singleNode(), new SimpleMeterRegistry());
+    }
+
+    /**
+     * Routing with no other nodes: every room is owned here.
+     */
+    private static RendezvousRoomRoutingService singleNode() {
+        return new RendezvousRoomRoutingService(new ClusterProperties());
+    }
+
+    static SimpMessageHeaderAccessor session(String sessionId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        return accessor;
+    }
+
+    /**
+     * Headers of a frame from a session authenticated on CONNECT as the given user.
+     */
+    static SimpMessageHeaderAccessor session(String sessionId, String userId, String username) {
+        SimpMessageHeaderAccessor accessor = session(sessionId);
+        accessor.setUser(new StompPrincipal(userId, username));
+        return accessor;
+    }
+
+    static WriteBehindService noOpWriteBehind() {
+        return new WriteBehindService() {
+            @Override
+            public void markDirty(String roomId, DocumentEngine.Snapshot snapshot) {
+            }
+
+            @Override
+            public void flushFile(String fileId) {
+            }
+
+            @Override
+            public void flushRoom(String roomId) {
+            }
+
+            @Override
+            public void flushAll() {
+            }
+
+            @Override
+            public int pendingCount() {
+                return 0;
+            }
+        };
+    }
+}
@@ -0,0 +1,193 @@
+package com.codetogether.backend.benchmark;
+
+import org.apache.activemq.artemis.core.config.Configuration;
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompBrokerRelayMessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Publish-to-last-subscriber latency of one topic broadcast through the in-JVM
+ * simple broker versus the STOMP broker relay backed by an embedded Artemis.
+ * Subscribers are simulated sessions; a broadcast completes when every one of
+ * them has received the frame on the clientOutboundChannel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BrokerFanoutBenchmark {
+
+    private static final String TOPIC = "/topic/room.bench.file.bench.delta";
+
+    private static final int ARTEMIS_PORT = 61623;
+
+    private static final byte[] PAYLOAD = ("{\"roomId\":\"bench\",\"fileId\":\"bench\",\"clientId\":\"c1\","
+            + "\"revision\":42,\"ops\":[{\"type\":\"INSERT\",\"position\":1234,\"text\":\"a\",\"length\":1}]}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Param({ "simple", "relay" })
+    public String broker;
+
+    @Param({ "100", "1000" })
+    public int subscribers;
+
+    private EmbeddedActiveMQ artemis;
+    private ThreadPoolTaskExecutor outboundExecutor;
+    private AbstractBrokerMessageHandler handler;
+    private Message<byte[]> broadcast;
+
+    private final AtomicInteger connected = new AtomicInteger();
+    private volatile CountDownLatch received;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        ExecutorSubscribableChannel clientInbound = new ExecutorSubscribableChannel();
+        ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+
+        // Same shape as the default clientOutboundChannel: frames are written from a pool
+        outboundExecutor = new ThreadPoolTaskExecutor();
+        outboundExecutor.setCorePoolSize(Runtime.getRuntime().availableProcessors() * 2);
+        outboundExecutor.initialize();
+        ExecutorSubscribableChannel clientOutbound = new ExecutorSubscribableChannel(outboundExecutor);
+        clientOutbound.subscribe(this::onOutbound);
+
+        if ("relay".equals(broker)) {
+            artemis = startArtemis();
+            StompBrokerRelayMessageHandler relay = new StompBrokerRelayMessageHandler(
+                    clientInbound, clientOutbound, brokerChannel, List.of("/topic", "/queue"));
+            relay.setRelayPort(ARTEMIS_PORT);
+            handler = relay;
+        } else {
+            handler = new SimpleBrokerMessageHandler(
+                    clientInbound, clientOutbound, brokerChannel, List.of("/topic", "/queue"));
+        }
+        handler.start();
+        awaitBroker();
+
+        for (int i = 0; i < subscribers; i++) {
+            handler.handleMessage(frame(StompCommand.CONNECT, "s" + i));
+        }
+        awaitCount(connected, subscribers);
+        for (int i = 0; i < subscribers; i++) {
+            StompHeaderAccessor subscribe = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+            subscribe.setSessionId("s" + i);
+            subscribe.setSubscriptionId("sub" + i);
+            subscribe.setDestination(TOPIC);
+            handler.handleMessage(MessageBuilder.createMessage(new byte[0], subscribe.getMessageHeaders()));
+        }
+
+        StompHeaderAccessor send = StompHeaderAccessor.create(StompCommand.SEND);
+        send.setDestination(TOPIC);
+        send.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        broadcast = MessageBuilder.createMessage(PAYLOAD, send.getMessageHeaders());
+
+        // Relay subscriptions are registered asynchronously by the broker
+        Thread.sleep("relay".equals(broker) ? 2000 : 100);
+    }
+
+    @Benchmark
+    public void broadcastToAllSubscribers() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(subscribers);
+        received = latch;
+        handler.handleMessage(broadcast);
+        if (!latch.await(10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Only " + (subscribers - latch.getCount()) + " subscribers received");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        handler.stop();
+        outboundExecutor.shutdown();
+        if (artemis != null) {
+            artemis.stop();
+        }
+    }
+
+    private void onOutbound(Message<?> message) {
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(message.getHeaders());
+        StompCommand command = StompHeaderAccessor.wrap(message).getCommand();
+        if (type == SimpMessageType.CONNECT_ACK || command == StompCommand.CONNECTED) {
+            connected.incrementAndGet();
+        } else if (type == SimpMessageType.MESSAGE) {
+            CountDownLatch latch = received;
+            if (latch != null) {
+                latch.countDown();
+            }
+        }
+    }
+
+    private static EmbeddedActiveMQ startArtemis() throws Exception {
+        Configuration config = new ConfigurationImpl()
+                .setPersistenceEnabled(false)
+                .setSecurityEnabled(false)
+                .setJournalDirectory(Files.createTempDirectory("artemis-bench").toString())
+                .addAcceptorConfiguration("stomp",
+                        "tcp://127.0.0.1:" + ARTEMIS_PORT + "?protocols=STOMP;anycastPrefix=/queue/;multicastPrefix=/topic/");
+        EmbeddedActiveMQ server = new EmbeddedActiveMQ();
+        server.setConfiguration(config);
+        server.start();
+        return server;
+    }
+
+    private void awaitBroker() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!handler.isBrokerAvailable()) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Broker did not become available");
+            }
+            Thread.sleep(50);
+        }
+    }
+
+    private static void awaitCount(AtomicInteger counter, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (counter.get() < expected) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Only " + counter.get() + " of " + expected + " sessions connected");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static Message<byte[]> frame(StompCommand command, String sessionId) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+        accessor.setSessionId(sessionId);
+        accessor.setAcceptVersion("1.2");
+        accessor.setHeartbeat(0, 0);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
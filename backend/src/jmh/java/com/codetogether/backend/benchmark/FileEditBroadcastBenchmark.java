@@ -0,0 +1,87 @@
+package com.codetogether.backend.benchmark;
+
+import com.codetogether.backend.controller.FileCollaborationController;
+import com.codetogether.backend.dto.FileDeltaRequest;
+import com.codetogether.backend.dto.FileEditRequest;
+import com.codetogether.backend.dto.TextOperation;
+import com.codetogether.backend.service.DocumentEngine;
+import com.codetogether.backend.service.impl.InMemoryDocumentEngine;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one edit on the server, payload serialization included: the
+ * full-content /file-edit path against a one-character /file-delta.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileEditBroadcastBenchmark {
+
+    @Param({ "1024", "65536", "1048576" })
+    public int contentSize;
+
+    private final String roomId = UUID.randomUUID().toString();
+    private final String fileId = UUID.randomUUID().toString();
+
+    private DocumentEngine documentEngine;
+    private FileCollaborationController controller;
+    private FileEditRequest editRequest;
+    private FileDeltaRequest deltaRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // replaceContent never loads from the repository
+        documentEngine = new InMemoryDocumentEngine(null, null);
+        controller = new FileCollaborationController(
+                BenchmarkSupport.jsonTemplate(), BenchmarkSupport.broadcastService(), documentEngine,
+                BenchmarkSupport.noOpWriteBehind(), BenchmarkSupport.OBJECT_MAPPER);
+
+        editRequest = new FileEditRequest();
+        editRequest.setRoomId(roomId);
+        editRequest.setFileId(fileId);
+        editRequest.setContent("x".repeat(contentSize));
+        controller.handleFileEdit(editRequest);
+
+        deltaRequest = new FileDeltaRequest();
+        deltaRequest.setRoomId(roomId);
+        deltaRequest.setFileId(fileId);
+        deltaRequest.setClientId("bench");
+        // Net zero change, so the document keeps its size
+        deltaRequest.setOps(List.of(TextOperation.insert(contentSize / 2, "a"), TextOperation.delete(contentSize / 2, 1)));
+    }
+
+    @Benchmark
+    public byte[] serializeFileEditRequest() throws JsonProcessingException {
+        return BenchmarkSupport.OBJECT_MAPPER.writeValueAsBytes(editRequest);
+    }
+
+    @Benchmark
+    public void handleFileEdit() {
+        controller.handleFileEdit(editRequest);
+    }
+
+    @Benchmark
+    public void handleFileDelta() {
+        deltaRequest.setBaseRevision(documentEngine.find(fileId).orElseThrow().revision());
+        controller.handleFileDelta(deltaRequest, BenchmarkSupport.session("s1"));
+    }
+}
@@ -0,0 +1,115 @@
+package com.codetogether.backend.benchmark;
+
+import com.codetogether.backend.dto.ChatMessageRequest;
+import com.codetogether.backend.dto.PresenceUsersMessage;
+import com.codetogether.backend.dto.SimpleUser;
+import com.codetogether.backend.websocket.PrebuiltJacksonMessageConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.MethodParameter;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Inbound chat payload and outbound presence list as untyped maps through the
+ * stock Jackson converter versus records through
+ * {@link PrebuiltJacksonMessageConverter}, called the way @Payload resolution
+ * and SimpMessagingTemplate call them. Run with the GC profiler for bytes/op
+ * (gc.alloc.rate.norm):
+ *
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:exec -Djmh.args="PayloadAllocation -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayloadAllocationBenchmark {
+
+    private MappingJackson2MessageConverter mapConverter;
+    private PrebuiltJacksonMessageConverter typedConverter;
+
+    private MethodParameter mapParameter;
+    private MethodParameter recordParameter;
+    private Message<byte[]> chatFrame;
+
+    private List<SimpleUser> users;
+    private SimpMessageHeaderAccessor outboundHeaders;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        mapConverter = new MappingJackson2MessageConverter(BenchmarkSupport.OBJECT_MAPPER);
+        typedConverter = new PrebuiltJacksonMessageConverter(BenchmarkSupport.OBJECT_MAPPER);
+        mapParameter = new MethodParameter(Handlers.class.getDeclaredMethod("map", Map.class), 0);
+        recordParameter = new MethodParameter(Handlers.class.getDeclaredMethod("typed", ChatMessageRequest.class), 0);
+
+        SimpMessageHeaderAccessor inbound = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        inbound.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        byte[] json = ("{\"roomId\":\"" + UUID.randomUUID() + "\",\"text\":\"Shall I take the parser tests?\"}")
+                .getBytes(StandardCharsets.UTF_8);
+        chatFrame = MessageBuilder.createMessage(json, inbound.getMessageHeaders());
+
+        users = IntStream.range(0, 10)
+                .mapToObj(i -> new SimpleUser(UUID.randomUUID().toString(), "user" + i))
+                .toList();
+        outboundHeaders = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        outboundHeaders.setLeaveMutable(true);
+    }
+
+    @Benchmark
+    public Object readChatAsMap() {
+        return mapConverter.fromMessage(chatFrame, Map.class, mapParameter);
+    }
+
+    @Benchmark
+    public Object readChatAsRecord() {
+        return typedConverter.fromMessage(chatFrame, ChatMessageRequest.class, recordParameter);
+    }
+
+    @Benchmark
+    public Object writePresenceAsMap() {
+        Map<String, Object> message = Map.of(
+                "type", "presence.users",
+                "users", users);
+        return mapConverter.toMessage(message, outboundHeaders.getMessageHeaders());
+    }
+
+    @Benchmark
+    public Object writePresenceAsRecord() {
+        return typedConverter.toMessage(new PresenceUsersMessage(users), outboundHeaders.getMessageHeaders());
+    }
+
+    /**
+     * Handler signatures before and after, for the @Payload conversion hint.
+     */
+    @SuppressWarnings("unused")
+    private static final class Handlers {
+        void map(Map<String, String> payload) {
+        }
+
+        void typed(ChatMessageRequest request) {
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.codetogether.backend.benchmark;
+
+import com.codetogether.backend.controller.PresenceController;
+import com.codetogether.backend.dto.RoomPresenceRequest;
+import com.codetogether.backend.dto.SimpleUser;
+import com.codetogether.backend.service.impl.InMemoryPresenceService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PresenceController join + leave of one user in a room of {@code roomUsers},
+ * broadcasts included, next to the Set&lt;SimpleUser&gt; stream lookup the
+ * controller used before presence moved into PresenceService.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PresenceLeaveBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    public int roomUsers;
+
+    private final String roomId = UUID.randomUUID().toString();
+    private PresenceController controller;
+    private RoomPresenceRequest payload;
+    private SimpMessageHeaderAccessor benchSession;
+
+    private Set<SimpleUser> legacyUsers;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        controller = new PresenceController(BenchmarkSupport.broadcastService(), BenchmarkSupport.noOpWriteBehind(),
+                new InMemoryPresenceService(event -> {
+                }), BenchmarkSupport.replayService(), BenchmarkSupport.jsonTemplate());
+        legacyUsers = ConcurrentHashMap.newKeySet();
+        for (int i = 0; i < roomUsers; i++) {
+            controller.handleJoin(new RoomPresenceRequest(roomId), BenchmarkSupport.session("s" + i, "user-" + i, "User " + i));
+            legacyUsers.add(new SimpleUser("user-" + i, "User " + i));
+        }
+        payload = new RoomPresenceRequest(roomId);
+        benchSession = BenchmarkSupport.session("bench", "bench", "Bench");
+    }
+
+    @Benchmark
+    public void joinAndLeave() {
+        controller.handleJoin(payload, benchSession);
+        controller.handleLeave(payload, benchSession);
+    }
+
+    /**
+     * The former handleLeave lookup: scan for the name, then scan again to remove.
+     */
+    @Benchmark
+    public String legacyStreamLookup() {
+        legacyUsers.add(new SimpleUser("bench", "Bench"));
+        String name = legacyUsers.stream()
+                .filter(u -> u.userId().equals("bench"))
+                .findFirst()
+                .map(SimpleUser::name)
+                .orElse("A user");
+        legacyUsers.removeIf(u -> u.userId().equals("bench"));
+        return name;
+    }
+}
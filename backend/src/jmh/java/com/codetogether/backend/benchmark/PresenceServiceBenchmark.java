@@ -0,0 +1,97 @@
+package com.codetogether.backend.benchmark;
+
+import com.codetogether.backend.dto.UserPresence;
+import com.codetogether.backend.service.impl.InMemoryPresenceService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * InMemoryPresenceService with every thread hitting the same room: writers
+ * join and leave while readers list or count the users.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PresenceServiceBenchmark {
+
+    @Param({ "10", "100" })
+    public int roomUsers;
+
+    private final UUID roomId = UUID.randomUUID();
+    private final AtomicInteger threadIds = new AtomicInteger();
+    private InMemoryPresenceService presenceService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        presenceService = new InMemoryPresenceService(event -> {
+        });
+        for (int i = 0; i < roomUsers; i++) {
+            presenceService.join(roomId, "user-" + i, "User " + i);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadUser {
+        String userId;
+
+        @Setup(Level.Trial)
+        public void setUp(PresenceServiceBenchmark benchmark) {
+            userId = "writer-" + benchmark.threadIds.incrementAndGet();
+        }
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean joinLeave(ThreadUser user) {
+        presenceService.join(roomId, user.userId, user.userId);
+        return presenceService.leave(roomId, user.userId).isPresent();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean heartbeat() {
+        return presenceService.updateLastSeen(roomId, "user-0");
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(2)
+    public boolean mixedJoinLeave(ThreadUser user) {
+        return joinLeave(user);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(4)
+    public Set<UserPresence> mixedGetOnlineUsers() {
+        return presenceService.getOnlineUsers(roomId);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(2)
+    public int mixedCountOnline() {
+        return presenceService.countOnline(roomId);
+    }
+}
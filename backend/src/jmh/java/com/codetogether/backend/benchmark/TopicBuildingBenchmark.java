@@ -0,0 +1,49 @@
+package com.codetogether.backend.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building a per-file topic such as /topic/room.{roomId}.file.{fileId}.delta,
+ * which the collaboration controllers do for every frame.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TopicBuildingBenchmark {
+
+    private final String roomId = UUID.randomUUID().toString();
+    private final String fileId = UUID.randomUUID().toString();
+
+    @Benchmark
+    public String stringFormat() {
+        return String.format("/topic/room.%s.file.%s.delta", roomId, fileId);
+    }
+
+    @Benchmark
+    public String concatenation() {
+        return "/topic/room." + roomId + ".file." + fileId + ".delta";
+    }
+
+    @Benchmark
+    public String presizedBuilder() {
+        return new StringBuilder(24 + roomId.length() + fileId.length())
+                .append("/topic/room.").append(roomId)
+                .append(".file.").append(fileId)
+                .append(".delta")
+                .toString();
+    }
+}
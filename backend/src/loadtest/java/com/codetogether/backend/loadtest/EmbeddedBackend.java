@@ -0,0 +1,62 @@
+package com.codetogether.backend.loadtest;
+
+import com.codetogether.backend.BackendApplication;
+import com.codetogether.backend.model.User;
+import com.codetogether.backend.repository.UserRepository;
+import com.codetogether.backend.util.JwtUtil;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * The backend started in this JVM on a throwaway PostgreSQL (real server
+ * binaries unpacked from the classpath; no Docker, no network), for runs
+ * without a target. Load generator and server then share the CPU, so use
+ * external targets for absolute numbers.
+ */
+final class EmbeddedBackend implements AutoCloseable {
+
+    private final EmbeddedPostgres postgres;
+    private final ConfigurableApplicationContext context;
+
+    private EmbeddedBackend(EmbeddedPostgres postgres, ConfigurableApplicationContext context) {
+        this.postgres = postgres;
+        this.context = context;
+    }
+
+    static EmbeddedBackend start() throws IOException {
+        EmbeddedPostgres postgres = EmbeddedPostgres.start();
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(BackendApplication.class)
+                .properties(Map.of(
+                        "spring.datasource.url", postgres.getJdbcUrl("postgres", "postgres"),
+                        "spring.datasource.username", "postgres",
+                        "spring.datasource.password", "",
+                        "server.port", "0",
+                        "logging.level.root", "WARN"))
+                .run();
+        return new EmbeddedBackend(postgres, context);
+    }
+
+    /**
+     * Create a user and return a token for it, for a session to send on CONNECT.
+     */
+    String issueToken(String username) {
+        // Never used for password login, so the hash does not need to be a real one
+        User user = context.getBean(UserRepository.class)
+                .save(new User(username, username + "@loadtest.invalid", "loadtest"));
+        return context.getBean(JwtUtil.class).generateToken(user);
+    }
+
+    String webSocketUrl() {
+        return "ws://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/ws";
+    }
+
+    @Override
+    public void close() throws IOException {
+        context.close();
+        postgres.close();
+    }
+}
@@ -0,0 +1,107 @@
+package com.codetogether.backend.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Publish-to-receive latency per topic type and message counts per node.
+ * Latencies are recorded in microseconds; every receiving session records one
+ * sample, so a broadcast to 20 sessions yields 20 samples.
+ */
+final class LatencyRecorder {
+
+    enum TopicType {
+        DELTA, CURSOR, CHAT
+    }
+
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final Map<TopicType, Recorder> recorders = new EnumMap<>(TopicType.class);
+    private final Map<TopicType, Histogram> totals = new EnumMap<>(TopicType.class);
+    private final Map<String, LongAdder> sentByNode = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> receivedByNode = new ConcurrentHashMap<>();
+    private final LongAdder rejectedDeltas = new LongAdder();
+
+    LatencyRecorder() {
+        for (TopicType type : TopicType.values()) {
+            recorders.put(type, new Recorder(MAX_LATENCY_MICROS, 3));
+            totals.put(type, new Histogram(MAX_LATENCY_MICROS, 3));
+        }
+    }
+
+    void sent(String node) {
+        sentByNode.computeIfAbsent(node, k -> new LongAdder()).increment();
+    }
+
+    void received(String node, TopicType type, long sentNanos) {
+        receivedByNode.computeIfAbsent(node, k -> new LongAdder()).increment();
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sentNanos);
+        recorders.get(type).recordValue(Math.min(Math.max(micros, 0), MAX_LATENCY_MICROS));
+    }
+
+    void rejectedDelta() {
+        rejectedDeltas.increment();
+    }
+
+    /**
+     * Drop everything recorded so far (end of warmup).
+     */
+    void reset() {
+        recorders.values().forEach(Recorder::reset);
+        totals.values().forEach(Histogram::reset);
+        sentByNode.clear();
+        receivedByNode.clear();
+        rejectedDeltas.reset();
+    }
+
+    /**
+     * Print the interval since the last call and fold it into the totals.
+     */
+    void printInterval(PrintStream out, long elapsedSeconds) {
+        StringBuilder line = new StringBuilder().append(String.format("[%4ds]", elapsedSeconds));
+        for (TopicType type : TopicType.values()) {
+            Histogram interval = recorders.get(type).getIntervalHistogram();
+            totals.get(type).add(interval);
+            line.append(String.format("  %s n=%d p50=%.1fms p99=%.1fms", type.name().toLowerCase(),
+                    interval.getTotalCount(), millis(interval, 50), millis(interval, 99)));
+        }
+        out.println(line);
+    }
+
+    void printSummary(PrintStream out, double seconds, Path output) throws IOException {
+        Files.createDirectories(output);
+        out.println();
+        out.printf("%-8s %12s %10s %10s %10s %10s%n", "topic", "samples", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        for (TopicType type : TopicType.values()) {
+            Histogram total = totals.get(type);
+            out.printf("%-8s %12d %10.2f %10.2f %10.2f %10.2f%n", type.name().toLowerCase(), total.getTotalCount(),
+                    millis(total, 50), millis(total, 99), millis(total, 99.9), total.getMaxValue() / 1000.0);
+            try (PrintStream file = new PrintStream(Files.newOutputStream(
+                    output.resolve(type.name().toLowerCase() + ".hgrm")))) {
+                total.outputPercentileDistribution(file, 1000.0);
+            }
+        }
+        out.println();
+        out.printf("%-32s %14s %14s%n", "node", "sent msg/s", "received msg/s");
+        for (String node : sentByNode.keySet()) {
+            out.printf("%-32s %14.0f %14.0f%n", node, sentByNode.get(node).sum() / seconds,
+                    receivedByNode.getOrDefault(node, new LongAdder()).sum() / seconds);
+        }
+        out.printf("%nRejected deltas (resynced): %d%nPercentile distributions (ms) written to %s%n",
+                rejectedDeltas.sum(), output.toAbsolutePath());
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+}
@@ -0,0 +1,122 @@
+package com.codetogether.backend.loadtest;
+
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * End-to-end WebSocket load test: opens {@code sessions} STOMP sessions, joins
+ * them to {@code rooms} rooms and drives edit, cursor and chat traffic, then
+ * reports publish-to-receive latency percentiles per topic type and message
+ * rates per node.
+ *
+ * <pre>
+ * mvn -Ploadtest test-compile exec:java -Dexec.args="sessions=2000 rooms=100 duration=PT2M"
+ * mvn -Ploadtest test-compile exec:java -Dexec.args="targets=ws://node-a:8081/ws,ws://node-b:8081/ws token=eyJ..."
+ * </pre>
+ *
+ * Rooms are assigned to targets round-robin and all sessions of a room use its target.
+ */
+public final class LoadTestMain {
+
+    private LoadTestMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        try (EmbeddedBackend backend = options.targets().isEmpty() ? EmbeddedBackend.start() : null) {
+            List<String> targets = backend != null ? List.of(backend.webSocketUrl()) : options.targets();
+            IntFunction<String> tokens = backend != null
+                    ? i -> backend.issueToken("loadgen-" + i)
+                    : i -> options.token();
+            if (backend == null && options.token() == null) {
+                throw new IllegalArgumentException("External targets need token=<jwt> for STOMP CONNECT");
+            }
+            run(options, targets, tokens);
+        }
+        System.exit(0);
+    }
+
+    private static void run(LoadTestOptions options, List<String> targets, IntFunction<String> tokens)
+            throws Exception {
+        LatencyRecorder recorder = new LatencyRecorder();
+        WebSocketStompClient client = new WebSocketStompClient(new StandardWebSocketClient());
+        client.setMessageConverter(new MappingJackson2MessageConverter());
+        client.setInboundMessageSizeLimit(1024 * 1024);
+
+        List<SimulatedSession.Room> rooms = new ArrayList<>(options.rooms());
+        for (int i = 0; i < options.rooms(); i++) {
+            rooms.add(new SimulatedSession.Room(UUID.randomUUID(), UUID.randomUUID(),
+                    targets.get(i % targets.size()), new AtomicLong()));
+        }
+
+        System.out.printf("Connecting %d sessions to %d rooms on %s%n", options.sessions(), options.rooms(), targets);
+        List<SimulatedSession> sessions = new ArrayList<>(options.sessions());
+        List<CompletableFuture<StompSession>> connects = new ArrayList<>(options.sessions());
+        long connectPauseNanos = options.rampUp().toNanos() / Math.max(options.sessions(), 1);
+        for (int i = 0; i < options.sessions(); i++) {
+            SimulatedSession session = new SimulatedSession(i, rooms.get(i % rooms.size()), tokens.apply(i), recorder);
+            sessions.add(session);
+            connects.add(session.connect(client));
+            TimeUnit.NANOSECONDS.sleep(connectPauseNanos);
+        }
+        long failed = connects.stream().filter(f -> {
+            try {
+                f.get(30, TimeUnit.SECONDS);
+                return false;
+            } catch (Exception e) {
+                return true;
+            }
+        }).count();
+        System.out.printf("%d sessions connected, %d failed%n", sessions.size() - failed, failed);
+
+        ScheduledExecutorService publishers = Executors.newScheduledThreadPool(
+                Math.max(2, Runtime.getRuntime().availableProcessors() / 2));
+        for (SimulatedSession session : sessions) {
+            schedule(publishers, options.editRate(), session::sendDelta);
+            schedule(publishers, options.cursorRate(), session::sendCursor);
+            schedule(publishers, options.chatRate(), session::sendChat);
+        }
+
+        TimeUnit.MILLISECONDS.sleep(options.warmup().toMillis());
+        recorder.reset();
+        long seconds = options.duration().toSeconds();
+        for (long s = 1; s <= seconds; s++) {
+            TimeUnit.SECONDS.sleep(1);
+            recorder.printInterval(System.out, s);
+        }
+
+        publishers.shutdownNow();
+        recorder.printSummary(System.out, seconds, options.output());
+        sessions.forEach(SimulatedSession::disconnect);
+        client.stop();
+    }
+
+    private static void schedule(ScheduledExecutorService executor, double perSecond, Runnable task) {
+        if (perSecond <= 0) {
+            return;
+        }
+        long periodNanos = (long) (TimeUnit.SECONDS.toNanos(1) / perSecond);
+        // Random phase so sessions do not publish in lockstep
+        long initialDelay = ThreadLocalRandom.current().nextLong(periodNanos);
+        executor.scheduleAtFixedRate(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                // A throwing task would stop being scheduled; a closed session just skips its turn
+            }
+        }, initialDelay, periodNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,62 @@
+package com.codetogether.backend.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Load test settings, given as {@code key=value} arguments.
+ *
+ * @param targets     WebSocket endpoints (ws://host:port/ws); empty starts an embedded backend
+ * @param sessions    STOMP sessions opened in total, spread over the targets
+ * @param rooms       rooms the sessions are spread over; each room edits one file
+ * @param editRate    deltas per session per second
+ * @param cursorRate  cursor updates per session per second
+ * @param chatRate    chat messages per session per second
+ * @param rampUp      time over which sessions connect
+ * @param warmup      traffic before latencies are recorded
+ * @param duration    measured traffic
+ * @param output      directory for the .hgrm percentile files
+ * @param token       JWT sent on STOMP CONNECT by every session to external targets;
+ *                    the embedded backend issues one per session instead
+ */
+record LoadTestOptions(
+        List<String> targets,
+        int sessions,
+        int rooms,
+        double editRate,
+        double cursorRate,
+        double chatRate,
+        Duration rampUp,
+        Duration warmup,
+        Duration duration,
+        Path output,
+        String token) {
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Expected key=value, got " + arg);
+            }
+            values.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        String targets = values.getOrDefault("targets", "");
+        return new LoadTestOptions(
+                targets.isBlank() ? List.of() : Arrays.stream(targets.split(",")).map(String::trim).toList(),
+                Integer.parseInt(values.getOrDefault("sessions", "1000")),
+                Integer.parseInt(values.getOrDefault("rooms", "50")),
+                Double.parseDouble(values.getOrDefault("editRate", "2")),
+                Double.parseDouble(values.getOrDefault("cursorRate", "10")),
+                Double.parseDouble(values.getOrDefault("chatRate", "0.1")),
+                Duration.parse(values.getOrDefault("rampUp", "PT10S")),
+                Duration.parse(values.getOrDefault("warmup", "PT10S")),
+                Duration.parse(values.getOrDefault("duration", "PT60S")),
+                Path.of(values.getOrDefault("output", "target/loadtest")),
+                values.get("token"));
+    }
+}
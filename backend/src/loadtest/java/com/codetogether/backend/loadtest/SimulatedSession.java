@@ -0,0 +1,186 @@
+package com.codetogether.backend.loadtest;
+
+import com.codetogether.backend.dto.CursorBatchMessage;
+import com.codetogether.backend.dto.CursorMessage;
+import com.codetogether.backend.dto.CursorPosition;
+import com.codetogether.backend.dto.FileDeltaMessage;
+import com.codetogether.backend.dto.FileDeltaRequest;
+import com.codetogether.backend.dto.FileEditRequest;
+import com.codetogether.backend.dto.FilePresenceRequest;
+import com.codetogether.backend.dto.SimpleMessage;
+import com.codetogether.backend.dto.TextOperation;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * One simulated editor: a STOMP session that joins a room and its file, then
+ * publishes deltas, cursor moves and chat at the configured rates and records
+ * the latency of everything it receives. Publishers stamp System.nanoTime()
+ * into the message (delta clientId, cursor timestamp, chat text), which is
+ * comparable because all sessions live in this JVM.
+ */
+final class SimulatedSession extends StompSessionHandlerAdapter {
+
+    private static final String CLIENT_ID_PREFIX = "lg-";
+
+    /**
+     * Shared state of one room: its file and the newest revision any session has seen.
+     */
+    record Room(UUID roomId, UUID fileId, String node, AtomicLong revision) {
+    }
+
+    private final int index;
+    private final Room room;
+    private final String token;
+    private final LatencyRecorder recorder;
+    private volatile StompSession session;
+
+    SimulatedSession(int index, Room room, String token, LatencyRecorder recorder) {
+        this.index = index;
+        this.room = room;
+        this.token = token;
+        this.recorder = recorder;
+    }
+
+    CompletableFuture<StompSession> connect(WebSocketStompClient client) {
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.set("Authorization", "Bearer " + token);
+        // roomId lets a clustered backend check it owns the room before accepting the socket
+        return client.connectAsync(room.node() + "?roomId=" + room.roomId(), new WebSocketHttpHeaders(),
+                connectHeaders, this);
+    }
+
+    @Override
+    public void afterConnected(StompSession session, StompHeaders connectedHeaders) {
+        String roomId = room.roomId().toString();
+        String fileId = room.fileId().toString();
+
+        subscribe(session, "/topic/room." + roomId + ".file." + fileId + ".delta", FileDeltaMessage.class,
+                this::onDelta);
+        subscribe(session, "/topic/room/" + roomId + "/cursor", CursorBatchMessage.class, this::onCursors);
+        subscribe(session, "/topic/room." + roomId + ".chat", SimpleMessage.class, this::onChat);
+        subscribe(session, "/user/queue/file-sync", FileEditRequest.class, this::onResync);
+
+        // The server takes the user from the session, so payloads only name the room
+        session.send("/app/presence.join", Map.of("roomId", roomId));
+        FilePresenceRequest join = new FilePresenceRequest();
+        join.setRoomId(roomId);
+        join.setFileId(fileId);
+        session.send("/app/join-file-room", join);
+
+        this.session = session;
+    }
+
+    @Override
+    public void handleException(StompSession session, StompCommand command, StompHeaders headers, byte[] payload,
+            Throwable exception) {
+        System.err.printf("Session %d: %s%n", index, exception.getMessage());
+    }
+
+    @Override
+    public void handleTransportError(StompSession session, Throwable exception) {
+        System.err.printf("Session %d transport error: %s%n", index, exception.getMessage());
+    }
+
+    void sendDelta() {
+        StompSession current = session;
+        if (current == null || !current.isConnected()) {
+            return;
+        }
+        FileDeltaRequest request = new FileDeltaRequest();
+        request.setRoomId(room.roomId().toString());
+        request.setFileId(room.fileId().toString());
+        request.setClientId(CLIENT_ID_PREFIX + System.nanoTime());
+        request.setBaseRevision(room.revision().get());
+        // Type one character and take it back, so the document stays small however long the run
+        request.setOps(List.of(TextOperation.insert(0, "x"), TextOperation.delete(0, 1)));
+        current.send("/app/file-delta", request);
+        recorder.sent(room.node());
+    }
+
+    void sendCursor() {
+        StompSession current = session;
+        if (current == null || !current.isConnected()) {
+            return;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        CursorMessage cursor = new CursorMessage(room.roomId(), room.fileId(), null,
+                new CursorPosition(random.nextInt(500), random.nextInt(120)), System.nanoTime());
+        current.send("/app/room/" + room.roomId() + "/cursor", cursor);
+        recorder.sent(room.node());
+    }
+
+    void sendChat() {
+        StompSession current = session;
+        if (current == null || !current.isConnected()) {
+            return;
+        }
+        current.send("/app/chat.message", Map.of(
+                "roomId", room.roomId().toString(),
+                "text", Long.toString(System.nanoTime())));
+        recorder.sent(room.node());
+    }
+
+    void disconnect() {
+        StompSession current = session;
+        if (current != null && current.isConnected()) {
+            current.disconnect();
+        }
+    }
+
+    private void onDelta(FileDeltaMessage delta) {
+        room.revision().accumulateAndGet(delta.revision(), Math::max);
+        String clientId = delta.clientId();
+        if (clientId != null && clientId.startsWith(CLIENT_ID_PREFIX)) {
+            recorder.received(room.node(), LatencyRecorder.TopicType.DELTA,
+                    Long.parseLong(clientId, CLIENT_ID_PREFIX.length(), clientId.length(), 10));
+        }
+    }
+
+    private void onCursors(CursorBatchMessage batch) {
+        for (CursorMessage cursor : batch.cursors()) {
+            if (cursor.timestamp() != null) {
+                recorder.received(room.node(), LatencyRecorder.TopicType.CURSOR, cursor.timestamp());
+            }
+        }
+    }
+
+    private void onChat(SimpleMessage message) {
+        recorder.received(room.node(), LatencyRecorder.TopicType.CHAT, Long.parseLong(message.text()));
+    }
+
+    private void onResync(FileEditRequest sync) {
+        recorder.rejectedDelta();
+        if (sync.getRevision() != null) {
+            room.revision().accumulateAndGet(sync.getRevision(), Math::max);
+        }
+    }
+
+    private static <T> void subscribe(StompSession session, String destination, Class<T> type, Consumer<T> handler) {
+        session.subscribe(destination, new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return type;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                handler.accept(type.cast(payload));
+            }
+        });
+    }
+}
@@ -0,0 +1,36 @@
+package com.codetogether.backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Message broker used for STOMP fan-out.
+ * SIMPLE keeps subscriptions in this JVM (single node only);
+ * RELAY forwards /topic and /queue to an external STOMP broker (RabbitMQ, Artemis)
+ * so every node sees every broadcast.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "collaboration.broker")
+public class BrokerProperties {
+
+    public enum Mode {
+        SIMPLE, RELAY
+    }
+
+    private Mode mode = Mode.SIMPLE;
+
+    private Relay relay = new Relay();
+
+    @Data
+    public static class Relay {
+        private String host = "127.0.0.1";
+        private int port = 61613;
+        private String virtualHost;
+        private String clientLogin = "guest";
+        private String clientPasscode = "guest";
+        private String systemLogin = "guest";
+        private String systemPasscode = "guest";
+    }
+}
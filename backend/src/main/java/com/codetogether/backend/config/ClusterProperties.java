@@ -0,0 +1,23 @@
+package com.codetogether.backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Backend nodes sharing the load. Each room is owned by one node so its live
+ * documents stay in a single JVM; with no nodes configured everything is local.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "collaboration.cluster")
+public class ClusterProperties {
+
+    private String nodeId = "local";
+
+    // nodeId -> public base URL clients should connect to
+    private Map<String, String> nodes = new LinkedHashMap<>();
+}
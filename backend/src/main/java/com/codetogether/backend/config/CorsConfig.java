@@ -26,8 +26,8 @@ public class CorsConfig implements WebMvcConfigurer {
                 .allowCredentials(true)
                 // Allowed request headers
                 .allowedHeaders("*")
-                // Expose Authorization header to frontend
-                .exposedHeaders("Authorization")
+                // Expose Authorization header, and ETag for conditional tree and file requests, to frontend
+                .exposedHeaders("Authorization", "ETag")
                 // Cache preflight request for 1 hour
                 .maxAge(3600);
     }
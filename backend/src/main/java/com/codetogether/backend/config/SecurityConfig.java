@@ -1,21 +1,27 @@
 package com.codetogether.backend.config;
 
 import com.codetogether.backend.security.JwtAuthFilter;
+import com.codetogether.backend.security.TtlUserCache;
 import com.codetogether.backend.service.CustomUserDetailsService;
 import com.codetogether.backend.util.JwtUtil;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.CachingUserDetailsService;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserCache;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.time.Duration;
+
 /**
  * Spring Security configuration for JWT-based authentication.
  * Configures security filters, authentication, and authorization rules.
@@ -28,19 +34,38 @@ public class SecurityConfig {
     private final JwtUtil jwtUtil;
     private final CustomUserDetailsService userDetailsService;
 
+    // How long JWT-authenticated requests reuse a loaded user before reading it again
+    @Value("${jwt.user-cache-ttl:PT30S}")
+    private Duration userCacheTtl;
+
+    @Value("${jwt.user-cache-size:10000}")
+    private int userCacheSize;
+
     public SecurityConfig(JwtUtil jwtUtil, CustomUserDetailsService userDetailsService) {
         this.jwtUtil = jwtUtil;
         this.userDetailsService = userDetailsService;
     }
 
+    /**
+     * Users loaded for token authentication (REST requests and STOMP CONNECT);
+     * password login always reads the user.
+     */
+    @Bean
+    public UserCache jwtUserCache() {
+        return new TtlUserCache(userCacheTtl, userCacheSize);
+    }
+
     @Bean
     public JwtAuthFilter jwtAuthFilter() {
-        return new JwtAuthFilter(jwtUtil, userDetailsService);
+        CachingUserDetailsService cachingUserDetailsService = new CachingUserDetailsService(userDetailsService);
+        cachingUserDetailsService.setUserCache(jwtUserCache());
+        return new JwtAuthFilter(jwtUtil, cachingUserDetailsService);
     }
 
     /**
      * Configure HTTP security with JWT authentication.
-     * WebSocket endpoints are allowed without authentication for now.
+     * The WebSocket handshake is open; STOMP sessions authenticate on CONNECT
+     * (see StompAuthChannelInterceptor).
      * 
      * @param http the HttpSecurity to configure
      * @return the configured SecurityFilterChain
@@ -55,7 +80,7 @@ public class SecurityConfig {
                         // Public endpoints - authentication
                         .requestMatchers("/api/auth/**").permitAll()
 
-                        // WebSocket endpoints - bypass auth for now
+                        // WebSocket handshake - the JWT is checked on STOMP CONNECT
                         .requestMatchers("/ws/**").permitAll()
 
                         // All other endpoints require authentication
@@ -1,24 +1,167 @@
 package com.codetogether.backend.config;
 
+import com.codetogether.backend.security.StompAuthChannelInterceptor;
+import com.codetogether.backend.websocket.BroadcastBytesInterceptor;
+import com.codetogether.backend.websocket.CompactWireSupport;
+import com.codetogether.backend.websocket.PrebuiltJacksonMessageConverter;
+import com.codetogether.backend.websocket.RoomAffinityHandshakeInterceptor;
+import com.codetogether.backend.websocket.RoomLaneTaskExecutor;
+import com.codetogether.backend.websocket.SlowConsumerGuard;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.converter.ByteArrayMessageConverter;
+import org.springframework.messaging.converter.DefaultContentTypeResolver;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+import java.util.List;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final BrokerProperties brokerProperties;
+    private final RoomAffinityHandshakeInterceptor roomAffinityHandshakeInterceptor;
+    private final CompactWireSupport compactWireSupport;
+    private final StompAuthChannelInterceptor stompAuthChannelInterceptor;
+    private final ObjectMapper objectMapper;
+    private final BroadcastBytesInterceptor broadcastBytesInterceptor;
+    private final SlowConsumerGuard slowConsumerGuard;
+
+    // 0 = two lanes per available processor
+    @Value("${collaboration.inbound.lanes:0}")
+    private int inboundLanes;
+
+    @Value("${collaboration.inbound.lane-capacity:10000}")
+    private int inboundLaneCapacity;
+
+    // Same switch that moves Tomcat and @Scheduled work onto virtual threads
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    // Upper bound on concurrent outbound sends in virtual-thread mode
+    @Value("${collaboration.outbound.max-concurrency:1024}")
+    private int outboundMaxConcurrency;
+
+    public WebSocketConfig(BrokerProperties brokerProperties,
+            RoomAffinityHandshakeInterceptor roomAffinityHandshakeInterceptor,
+            CompactWireSupport compactWireSupport,
+            StompAuthChannelInterceptor stompAuthChannelInterceptor,
+            ObjectMapper objectMapper,
+            BroadcastBytesInterceptor broadcastBytesInterceptor,
+            SlowConsumerGuard slowConsumerGuard) {
+        this.brokerProperties = brokerProperties;
+        this.roomAffinityHandshakeInterceptor = roomAffinityHandshakeInterceptor;
+        this.compactWireSupport = compactWireSupport;
+        this.stompAuthChannelInterceptor = stompAuthChannelInterceptor;
+        this.objectMapper = objectMapper;
+        this.broadcastBytesInterceptor = broadcastBytesInterceptor;
+        this.slowConsumerGuard = slowConsumerGuard;
+    }
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic");
+        // /queue carries session-scoped replies such as file resyncs (/user/queue/...)
+        if (brokerProperties.getMode() == BrokerProperties.Mode.RELAY) {
+            BrokerProperties.Relay relay = brokerProperties.getRelay();
+            config.enableStompBrokerRelay("/topic", "/queue")
+                    .setRelayHost(relay.getHost())
+                    .setRelayPort(relay.getPort())
+                    .setVirtualHost(relay.getVirtualHost())
+                    .setClientLogin(relay.getClientLogin())
+                    .setClientPasscode(relay.getClientPasscode())
+                    .setSystemLogin(relay.getSystemLogin())
+                    .setSystemPasscode(relay.getSystemPasscode())
+                    // Let user destinations resolve to sessions connected to other nodes
+                    .setUserDestinationBroadcast("/topic/unresolved-user-destination")
+                    .setUserRegistryBroadcast("/topic/simp-user-registry");
+        } else {
+            config.enableSimpleBroker("/topic", "/queue");
+        }
+        // Frames reach each session in publish order: deltas arrive by revision and
+        // compact-wire strings are defined before they are referenced
+        config.setPreservePublishOrder(true);
         config.setApplicationDestinationPrefixes("/app");
+        config.setUserDestinationPrefix("/user");
     }
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/ws")
+                .addInterceptors(roomAffinityHandshakeInterceptor)
                 .setAllowedOriginPatterns("*");
     }
+
+    /**
+     * Every session writes through its own bounded queue, so a slow client sheds
+     * frames and is resynced rather than stalling the threads that fan out to it.
+     */
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.addDecoratorFactory(slowConsumerGuard);
+    }
+
+    /**
+     * The default converters, with the JSON one keeping a reader and writer per
+     * payload type and using the application's ObjectMapper.
+     */
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        DefaultContentTypeResolver resolver = new DefaultContentTypeResolver();
+        resolver.setDefaultMimeType(MimeTypeUtils.APPLICATION_JSON);
+        PrebuiltJacksonMessageConverter jsonConverter = new PrebuiltJacksonMessageConverter(objectMapper);
+        jsonConverter.setContentTypeResolver(resolver);
+
+        messageConverters.add(new StringMessageConverter());
+        messageConverters.add(new ByteArrayMessageConverter());
+        messageConverters.add(jsonConverter);
+        return false;
+    }
+
+    /**
+     * Route inbound frames onto per-room single-threaded lanes so edits to a
+     * document are handled in order and one hot room cannot starve the others.
+     */
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        int lanes = inboundLanes > 0 ? inboundLanes : Runtime.getRuntime().availableProcessors() * 2;
+        RoomLaneTaskExecutor executor = new RoomLaneTaskExecutor(lanes, inboundLaneCapacity);
+        executor.setThreadNamePrefix("clientInboundChannel-");
+        if (virtualThreads) {
+            executor.setThreadFactory(Thread.ofVirtual().name("clientInboundChannel-", 0).factory());
+        }
+        registration.executor(executor);
+        // Both run on the receiving thread, before the lanes: CONNECT is authenticated
+        // once per session, and compact frames are decoded in session order
+        registration.interceptors(stompAuthChannelInterceptor, compactWireSupport.inboundInterceptor());
+    }
+
+    /**
+     * In virtual-thread mode, session sends run on virtual threads: a send blocked
+     * on a slow socket parks instead of holding one of a few platform threads.
+     */
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        // Counted after compact re-encoding, so "written" is what actually goes out
+        registration.interceptors(compactWireSupport.outboundInterceptor(), broadcastBytesInterceptor);
+        if (!virtualThreads) {
+            return;
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("clientOutboundChannel-");
+        executor.setThreadFactory(Thread.ofVirtual().name("clientOutboundChannel-", 0).factory());
+        executor.setCorePoolSize(outboundMaxConcurrency);
+        executor.setMaxPoolSize(outboundMaxConcurrency);
+        executor.setAllowCoreThreadTimeOut(true);
+        registration.executor(executor);
+    }
 }
@@ -1,38 +1,39 @@
 package com.codetogether.backend.controller;
 
+import com.codetogether.backend.dto.ChatMessageRequest;
 import com.codetogether.backend.dto.SimpleMessage;
+import com.codetogether.backend.security.StompPrincipal;
+import com.codetogether.backend.service.BroadcastService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.stereotype.Controller;
-import java.util.Map;
 
 @Controller
 @RequiredArgsConstructor
 @Slf4j
 public class ChatController {
 
-    private final SimpMessagingTemplate messagingTemplate;
+    private final BroadcastService broadcastService;
 
     @MessageMapping("/chat.message")
-    public void handleMessage(@Payload Map<String, String> payload) {
-        String roomId = payload.get("roomId");
-        String userId = payload.get("userId");
-        String name = payload.get("name");
-        String text = payload.get("text");
+    public void handleMessage(@Payload ChatMessageRequest request, SimpMessageHeaderAccessor headerAccessor) {
+        String roomId = request.roomId();
+        String text = request.text();
 
-        if (roomId == null || text == null)
+        // The sender is the session's authenticated user, not whoever the payload names
+        if (roomId == null || text == null || !(headerAccessor.getUser() instanceof StompPrincipal user))
             return;
 
-        SimpleMessage msg = new SimpleMessage(userId, name, text);
+        SimpleMessage msg = new SimpleMessage(user.userId(), user.username(), text);
 
         // Topic: /topic/room.{roomId}.chat
         // Frontend expects: socket.on("chat.message", msg => ...)
         // We send just the msg object? Or wrapped?
         // User spec: "Broadcast to room: { userId, name, text }"
         // So we send the raw object.
-        messagingTemplate.convertAndSend((String) ("/topic/room." + roomId + ".chat"), msg);
+        broadcastService.broadcast("/topic/room." + roomId + ".chat", msg);
     }
 }
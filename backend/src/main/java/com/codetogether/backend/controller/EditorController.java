@@ -3,35 +3,48 @@ package com.codetogether.backend.controller;
 import com.codetogether.backend.dto.CodeChangeMessage;
 import com.codetogether.backend.dto.CodeSyncResponse;
 import com.codetogether.backend.dto.CursorMessage;
+import com.codetogether.backend.security.StompPrincipal;
+import com.codetogether.backend.service.CursorAggregator;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.handler.annotation.SendTo;
 import org.springframework.stereotype.Controller;
 
+import java.security.Principal;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Controller
 public class EditorController {
 
+    private final CursorAggregator cursorAggregator;
+
+    public EditorController(CursorAggregator cursorAggregator) {
+        this.cursorAggregator = cursorAggregator;
+    }
+
     @MessageMapping("/editor.update")
     @SendTo("/topic/editor/{roomId}")
-    public CodeSyncResponse handleCodeUpdate(@Payload CodeChangeMessage message, @DestinationVariable String roomId) {
+    public CodeSyncResponse handleCodeUpdate(@Payload CodeChangeMessage message, @DestinationVariable String roomId,
+            Principal principal) {
         // In a real app, we would save the change to DB/Redis here
         return new CodeSyncResponse(
                 message.fileId(),
                 message.content(),
-                message.userId(),
+                principal instanceof StompPrincipal user ? user.userId() : null,
                 LocalDateTime.now(),
                 message.cursorPos());
     }
 
     // Keeping this for compatibility with implementation plan if needed,
-    // but usually cursor updates are separate to reduce payload size
+    // but usually cursor updates are separate to reduce payload size.
+    // The room comes from the payload: /app/editor.cursor carries no room segment.
     @MessageMapping("/editor.cursor")
-    @SendTo("/topic/cursor/{roomId}")
-    public CursorMessage handleCursorUpdate(@Payload CursorMessage message, @DestinationVariable String roomId) {
-        return message;
+    public void handleCursorUpdate(@Payload CursorMessage message, Principal principal) {
+        if (message.roomId() == null || principal == null)
+            return;
+        cursorAggregator.submit("/topic/cursor/" + message.roomId(), new CursorMessage(
+                message.roomId(), message.fileId(), principal.getName(), message.cursorPosition(), message.timestamp()));
     }
 }
@@ -1,14 +1,32 @@
 package com.codetogether.backend.controller;
 
+import com.codetogether.backend.dto.AutoSaveMessage;
+import com.codetogether.backend.dto.AutoSaveToggleRequest;
+import com.codetogether.backend.dto.EditingIndicatorsMessage;
+import com.codetogether.backend.dto.FileDeltaMessage;
+import com.codetogether.backend.dto.FileDeltaRequest;
 import com.codetogether.backend.dto.FileEditRequest;
 import com.codetogether.backend.dto.FilePresenceRequest;
+import com.codetogether.backend.service.BroadcastService;
+import com.codetogether.backend.service.DocumentEngine;
+import com.codetogether.backend.service.WriteBehindService;
+import com.codetogether.backend.util.ContentCodec;
+import com.codetogether.backend.websocket.OutboundResyncEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
+import org.springframework.util.MimeTypeUtils;
 
+import java.security.Principal;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -18,82 +36,175 @@ import java.util.concurrent.ConcurrentHashMap;
 @Slf4j
 public class FileCollaborationController {
 
+    private static final String RESYNC_DESTINATION = "/queue/file-sync";
+    private static final String DEFLATE = "deflate";
+
     private final SimpMessagingTemplate messagingTemplate;
+    private final BroadcastService broadcastService;
+    private final DocumentEngine documentEngine;
+    private final WriteBehindService writeBehindService;
+    private final ObjectMapper objectMapper;
 
-    // fileId -> Set<username>
-    private final Map<String, Set<String>> activeEditors = new ConcurrentHashMap<>();
+    // Join snapshots at least this large go deflated to sessions that accept it
+    @Value("${collaboration.sync.deflate-min-bytes:32768}")
+    private int deflateMinBytes;
 
-    // fileId -> content (Latest in-memory content)
-    private final Map<String, String> activeFileContents = new ConcurrentHashMap<>();
+    // fileId -> Set<username>, taken from the session's principal rather than the payload
+    private final Map<String, Set<String>> activeEditors = new ConcurrentHashMap<>();
 
+    /**
+     * Sync the joining session, and only it, with the live document if it is open.
+     * The snapshot carries its revision so a client already at it can ignore it.
+     */
     @MessageMapping("/join-file-room")
-    public void joinFileRoom(@Payload FilePresenceRequest request) {
-        log.info("User {} joined file room: {}", request.getUsername(), request.getFileId());
-
-        // Sync new user with latest cached content if exists
-        String cachedContent = activeFileContents.get(request.getFileId());
-        if (cachedContent != null) {
-            FileEditRequest syncMessage = new FileEditRequest();
-            syncMessage.setRoomId(request.getRoomId());
-            syncMessage.setFileId(request.getFileId());
-            syncMessage.setContent(cachedContent);
-
-            String topic = String.format("/topic/room.%s.file.%s.edit", request.getRoomId(), request.getFileId());
-            messagingTemplate.convertAndSend(topic, syncMessage);
-        }
+    public void joinFileRoom(@Payload FilePresenceRequest request, SimpMessageHeaderAccessor headerAccessor) {
+        log.info("User {} joined file room: {}", nameOf(headerAccessor.getUser()), request.getFileId());
+
+        documentEngine.find(request.getFileId()).ifPresent(snapshot -> sendSync(headerAccessor.getSessionId(),
+                toSyncMessage(request.getRoomId(), snapshot), DEFLATE.equals(request.getCompression())));
     }
 
     @MessageMapping("/leave-file-room")
-    public void leaveFileRoom(@Payload FilePresenceRequest request) {
-        log.info("User {} left file room: {}", request.getUsername(), request.getFileId());
-        removeUserFromEditing(request.getFileId(), request.getUsername(), request.getRoomId());
+    public void leaveFileRoom(@Payload FilePresenceRequest request, Principal principal) {
+        log.info("User {} left file room: {}", nameOf(principal), request.getFileId());
+        removeUserFromEditing(request.getFileId(), nameOf(principal), request.getRoomId());
     }
 
+    /**
+     * Full-content edit. Kept as the resync fallback: it replaces the server copy,
+     * starts a new revision and drops the op history, so pending deltas based on
+     * earlier revisions are answered with a resync.
+     */
     @MessageMapping("/file-edit")
     public void handleFileEdit(@Payload FileEditRequest request) {
-        // Cache the latest content
-        activeFileContents.put(request.getFileId(), request.getContent());
-
-        // Broadcast change to specific file topic
+        String content = request.getContent() != null ? request.getContent() : "";
         String topic = String.format("/topic/room.%s.file.%s.edit", request.getRoomId(), request.getFileId());
-        messagingTemplate.convertAndSend(topic, request);
+
+        DocumentEngine.Edit edit = documentEngine.replaceContent(request.getFileId(), content, applied -> {
+            request.setRevision(applied.snapshot().revision());
+
+            // Broadcast change to specific file topic
+            broadcastService.broadcast(topic, request);
+        });
+        writeBehindService.markDirty(request.getRoomId(), edit.snapshot());
+    }
+
+    /**
+     * Delta edit: ops produced against {@code baseRevision} are transformed against
+     * everything applied since, applied to the server copy and broadcast as a
+     * {@link FileDeltaMessage} with the new revision. The sender recognises its own
+     * ack by {@code clientId}.
+     */
+    @MessageMapping("/file-delta")
+    public void handleFileDelta(@Payload FileDeltaRequest request, SimpMessageHeaderAccessor headerAccessor) {
+        String fileId = request.getFileId();
+        String topic = String.format("/topic/room.%s.file.%s.delta", request.getRoomId(), fileId);
+
+        DocumentEngine.Edit edit = documentEngine.applyDelta(fileId, request.getBaseRevision(), request.getOps(),
+                applied -> broadcastService.broadcast(topic, new FileDeltaMessage(
+                        request.getRoomId(), fileId, request.getClientId(),
+                        applied.snapshot().revision(), applied.ops())));
+
+        if (!edit.applied()) {
+            log.debug("Delta for file {} at revision {} rejected, resyncing session {}",
+                    fileId, request.getBaseRevision(), headerAccessor.getSessionId());
+            sendSync(headerAccessor.getSessionId(), toSyncMessage(request.getRoomId(), edit.snapshot()), false);
+            return;
+        }
+        writeBehindService.markDirty(request.getRoomId(), edit.snapshot());
+    }
+
+    /**
+     * A lagging session's queue shed edits of a file: send it a snapshot instead.
+     * Taken under the document lock, so it is queued after the shed deltas and
+     * before any newer one.
+     */
+    @EventListener
+    public void handleOutboundResync(OutboundResyncEvent event) {
+        documentEngine.withSnapshot(event.fileId(),
+                snapshot -> sendSync(event.sessionId(), toSyncMessage(event.roomId(), snapshot), false));
     }
 
     @MessageMapping("/editing-started")
-    public void handleEditingStarted(@Payload FilePresenceRequest request) {
+    public void handleEditingStarted(@Payload FilePresenceRequest request, Principal principal) {
+        if (principal == null) {
+            return;
+        }
         activeEditors.computeIfAbsent(request.getFileId(), k -> ConcurrentHashMap.newKeySet())
-                .add(request.getUsername());
+                .add(principal.getName());
         broadcastEditingStatus(request.getRoomId(), request.getFileId());
     }
 
     @MessageMapping("/editing-stopped")
-    public void handleEditingStopped(@Payload FilePresenceRequest request) {
-        removeUserFromEditing(request.getFileId(), request.getUsername(), request.getRoomId());
+    public void handleEditingStopped(@Payload FilePresenceRequest request, Principal principal) {
+        removeUserFromEditing(request.getFileId(), nameOf(principal), request.getRoomId());
     }
 
     @MessageMapping("/auto-save-toggle")
-    public void handleAutoSaveToggle(@Payload Map<String, Object> payload) {
-        String roomId = (String) payload.get("roomId");
-        String fileId = (String) payload.get("fileId");
-        Boolean enabled = (Boolean) payload.get("enabled");
-        String username = (String) payload.get("username");
+    public void handleAutoSaveToggle(@Payload AutoSaveToggleRequest request, Principal principal) {
+        String roomId = request.roomId();
+        String fileId = request.fileId();
+        Boolean enabled = request.enabled();
+        String username = nameOf(principal);
+        if (enabled == null || username == null) {
+            return;
+        }
 
         log.info("Auto-save toggle: {} by {} for file {}", enabled, username, fileId);
 
         // Broadcast to all users in the room
         String topic = String.format("/topic/room.%s.file.%s.autosave", roomId, fileId);
-        Map<String, Object> message = Map.of(
-                "enabled", enabled,
-                "username", username);
-        messagingTemplate.convertAndSend(topic, message);
+        broadcastService.broadcast(topic, new AutoSaveMessage(enabled, username));
+    }
+
+    private FileEditRequest toSyncMessage(String roomId, DocumentEngine.Snapshot snapshot) {
+        FileEditRequest syncMessage = new FileEditRequest();
+        syncMessage.setRoomId(roomId);
+        syncMessage.setFileId(snapshot.fileId());
+        syncMessage.setContent(snapshot.content().toString());
+        syncMessage.setRevision(snapshot.revision());
+        return syncMessage;
+    }
+
+    /**
+     * Send a full snapshot to one session. With {@code deflate}, a large one goes as a
+     * binary frame of deflated JSON marked {@code content-encoding: deflate}.
+     */
+    private void sendSync(String sessionId, FileEditRequest syncMessage, boolean deflate) {
+        if (sessionId == null) {
+            return;
+        }
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId(sessionId);
+        // Lets session outbound queues tell which file a snapshot brings up to date
+        headers.setNativeHeader("file-id", syncMessage.getFileId());
+        headers.setLeaveMutable(true);
+
+        Object payload = syncMessage;
+        if (deflate && syncMessage.getContent().length() >= deflateMinBytes) {
+            try {
+                payload = ContentCodec.deflate(objectMapper.writeValueAsBytes(syncMessage));
+                headers.setContentType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+                headers.setNativeHeader("content-encoding", DEFLATE);
+            } catch (JsonProcessingException e) {
+                log.warn("Sending file {} snapshot uncompressed: {}", syncMessage.getFileId(), e.getMessage());
+            }
+        }
+        messagingTemplate.convertAndSendToUser(sessionId, RESYNC_DESTINATION, payload, headers.getMessageHeaders());
+    }
+
+    private static String nameOf(Principal principal) {
+        return principal != null ? principal.getName() : null;
     }
 
     private void removeUserFromEditing(String fileId, String username, String roomId) {
         Set<String> editors = activeEditors.get(fileId);
-        if (editors != null) {
+        if (editors != null && username != null) {
             editors.remove(username);
             if (editors.isEmpty()) {
                 activeEditors.remove(fileId);
+                // Nobody is editing any more: persist now instead of waiting for the next tick
+                writeBehindService.flushFile(fileId);
             }
             broadcastEditingStatus(roomId, fileId);
         }
@@ -101,14 +212,9 @@ public class FileCollaborationController {
 
     private void broadcastEditingStatus(String roomId, String fileId) {
         Set<String> editors = activeEditors.getOrDefault(fileId, Set.of());
-        int count = editors.size();
 
         // Broadcast to global room topic for FileTree indicators
         String topic = String.format("/topic/room.%s.editing-indicators", roomId);
-        Map<String, Object> statusUpdate = Map.of(
-                "fileId", fileId,
-                "editingCount", count,
-                "editors", editors);
-        messagingTemplate.convertAndSend(topic, (Object) statusUpdate);
+        broadcastService.broadcast(topic, new EditingIndicatorsMessage(fileId, editors.size(), editors));
     }
 }
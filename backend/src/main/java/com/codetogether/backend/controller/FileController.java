@@ -2,13 +2,21 @@ package com.codetogether.backend.controller;
 
 import com.codetogether.backend.dto.FileRequest;
 import com.codetogether.backend.dto.FileResponse;
+import com.codetogether.backend.dto.FileVersionResponse;
 import com.codetogether.backend.service.FileService;
+import com.codetogether.backend.service.FileVersionService;
+import com.codetogether.backend.util.ContentCodec;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.UUID;
 
@@ -19,6 +27,7 @@ import java.util.UUID;
 public class FileController {
 
     private final FileService fileService;
+    private final FileVersionService fileVersionService;
 
     @PostMapping
     public ResponseEntity<FileResponse> createFile(@RequestBody FileRequest request) {
@@ -32,7 +41,30 @@ public class FileController {
 
     @GetMapping("/{id}")
     public ResponseEntity<FileResponse> getFile(@PathVariable UUID id) {
-        return ResponseEntity.ok(fileService.getFile(id));
+        return withETag(fileService.getFile(id));
+    }
+
+    @GetMapping("/{id}/raw")
+    public ResponseEntity<StreamingResponseBody> getFileContent(@PathVariable UUID id) {
+        InputStream content = fileService.openContent(id);
+        StreamingResponseBody body = out -> {
+            try (content) {
+                content.transferTo(out);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+                .body(body);
+    }
+
+    @GetMapping("/{id}/versions")
+    public ResponseEntity<List<FileVersionResponse>> listVersions(@PathVariable UUID id) {
+        return ResponseEntity.ok(fileVersionService.listVersions(id));
+    }
+
+    @GetMapping("/{id}/versions/{version}")
+    public ResponseEntity<FileVersionResponse> getVersion(@PathVariable UUID id, @PathVariable int version) {
+        return ResponseEntity.ok(fileVersionService.getVersion(id, version));
     }
 
     @PutMapping("/{id}")
@@ -40,9 +72,14 @@ public class FileController {
         return ResponseEntity.ok(fileService.renameFile(id, request.name()));
     }
 
+    /**
+     * Without If-Match the content is overwritten. With the ETag of an older
+     * version, changes made since are merged in, or a 409 describes the conflicts.
+     */
     @PutMapping("/{id}/content")
-    public ResponseEntity<FileResponse> updateFileContent(@PathVariable UUID id, @RequestBody FileRequest request) {
-        return ResponseEntity.ok(fileService.updateFileContent(id, request.content()));
+    public ResponseEntity<FileResponse> updateFileContent(@PathVariable UUID id, @RequestBody FileRequest request,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return withETag(fileService.updateFileContent(id, request.content(), baseHash(ifMatch)));
     }
 
     @DeleteMapping("/{id}")
@@ -50,4 +87,24 @@ public class FileController {
         fileService.deleteFile(id);
         return ResponseEntity.noContent().build();
     }
+
+    // The ETag of a file is the hash of its content
+    private static ResponseEntity<FileResponse> withETag(FileResponse file) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (file.content() != null) {
+            response.eTag(ContentCodec.hash(file.content()));
+        }
+        return response.body(file);
+    }
+
+    private static String baseHash(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.split(",")[0].trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        return tag.replace("\"", "");
+    }
 }
@@ -1,103 +1,262 @@
 package com.codetogether.backend.controller;
 
+import com.codetogether.backend.dto.PresenceEventMessage;
+import com.codetogether.backend.dto.PresenceUsersMessage;
+import com.codetogether.backend.dto.RoomPresenceRequest;
+import com.codetogether.backend.dto.RoomReplayMessage;
+import com.codetogether.backend.dto.RoomResumeRequest;
 import com.codetogether.backend.dto.SimpleUser;
+import com.codetogether.backend.dto.UserPresence;
+import com.codetogether.backend.security.StompPrincipal;
+import com.codetogether.backend.service.BroadcastService;
+import com.codetogether.backend.service.PresenceExpiredEvent;
+import com.codetogether.backend.service.PresenceService;
+import com.codetogether.backend.service.RoomReplayService;
+import com.codetogether.backend.service.WriteBehindService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Controller;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
 
 @Controller
 @RequiredArgsConstructor
 @Slf4j
 public class PresenceController {
 
+    private static final String ROOM_TOPIC_PREFIX = "/topic/room/";
+    private static final String REPLAY_DESTINATION = "/queue/room-replay";
+
+    private final BroadcastService broadcastService;
+    private final WriteBehindService writeBehindService;
+    private final PresenceService presenceService;
+    private final RoomReplayService roomReplayService;
     private final SimpMessagingTemplate messagingTemplate;
 
-    // roomId -> Set<SimpleUser>
-    private final Map<String, Set<SimpleUser>> roomOnlineUsers = new ConcurrentHashMap<>();
+    // sessionId -> rooms joined over that session on this node; refreshed as heartbeats while it is open
+    private final Map<String, Set<Membership>> localSessions = new ConcurrentHashMap<>();
 
-    @MessageMapping("/presence.join")
-    public void handleJoin(@Payload Map<String, String> payload) {
-        String roomId = payload.get("roomId");
-        String userId = payload.get("userId");
-        String name = payload.get("name");
+    // (roomId, userId) -> sessions on this node in the room as that user, e.g. several tabs
+    private final Map<RoomMember, Set<String>> memberSessions = new ConcurrentHashMap<>();
 
-        if (roomId == null || userId == null || name == null)
+    /**
+     * Join a room as the session's authenticated user; only {@code roomId} is
+     * read from the payload.
+     */
+    @MessageMapping("/presence.join")
+    public void handleJoin(@Payload RoomPresenceRequest request, SimpMessageHeaderAccessor headerAccessor) {
+        UUID roomId = parseRoomId(request.roomId());
+        if (roomId == null || !(headerAccessor.getUser() instanceof StompPrincipal user))
             return;
 
-        SimpleUser user = new SimpleUser(userId, name);
-        roomOnlineUsers.computeIfAbsent(roomId, k -> ConcurrentHashMap.newKeySet()).add(user);
+        join(headerAccessor.getSessionId(), roomId, user);
+    }
 
-        broadcastPresence(roomId);
-        broadcastJoin(roomId, name);
+    /**
+     * Rejoin a room after a reconnect. The session is sent the broadcasts it missed
+     * instead of reloading the tree, file and presence; see {@link RoomReplayMessage}.
+     */
+    @MessageMapping("/presence.resume")
+    public void handleResume(@Payload RoomResumeRequest request, SimpMessageHeaderAccessor headerAccessor) {
+        UUID roomId = parseRoomId(request.roomId());
+        String sessionId = headerAccessor.getSessionId();
+        if (roomId == null || sessionId == null || !(headerAccessor.getUser() instanceof StompPrincipal user))
+            return;
+
+        long lastSequence = request.lastSequence() != null ? request.lastSequence() : RoomReplayService.NO_SEQUENCE;
+        Map<String, Long> topics = request.topics() != null ? request.topics() : Map.of();
+        roomReplayService.replay(roomId.toString(), lastSequence, topics, replay -> sendReplay(sessionId, roomId, replay));
+        // Numbered after the replay, so these broadcasts reach the session live
+        join(sessionId, roomId, user);
     }
 
-    // Improved handleLeave to capture name
     @MessageMapping("/presence.leave")
-    public void handleLeave(@Payload Map<String, String> payload) {
-        String roomId = payload.get("roomId");
-        String userId = payload.get("userId");
+    public void handleLeave(@Payload RoomPresenceRequest request, SimpMessageHeaderAccessor headerAccessor) {
+        UUID roomId = parseRoomId(request.roomId());
+        if (roomId == null || !(headerAccessor.getUser() instanceof StompPrincipal user))
+            return;
+
+        String userId = user.userId();
+        String sessionId = headerAccessor.getSessionId();
+        if (sessionId != null) {
+            localSessions.computeIfPresent(sessionId, (k, memberships) -> {
+                memberships.removeIf(m -> m.roomId().equals(roomId) && m.userId().equals(userId));
+                return memberships.isEmpty() ? null : memberships;
+            });
+        }
+        if (sessionId == null || release(sessionId, roomId, userId)) {
+            leave(roomId, userId);
+        }
+    }
 
-        if (roomId == null || userId == null)
+    /**
+     * Subscribing to a room topic (/topic/room/{roomId}/...) also joins the room,
+     * for clients that never send presence.join.
+     */
+    @EventListener
+    public void handleSessionSubscribe(SessionSubscribeEvent event) {
+        String destination = SimpMessageHeaderAccessor.getDestination(event.getMessage().getHeaders());
+        if (destination == null || !destination.startsWith(ROOM_TOPIC_PREFIX)
+                || !(event.getUser() instanceof StompPrincipal user))
             return;
 
-        Set<SimpleUser> users = roomOnlineUsers.get(roomId);
-        if (users != null) {
-            // Find user to get name
-            String name = users.stream()
-                    .filter(u -> u.getUserId().equals(userId))
-                    .findFirst()
-                    .map(SimpleUser::getName)
-                    .orElse("A user");
-
-            boolean removed = users.removeIf(u -> u.getUserId().equals(userId));
-            if (users.isEmpty()) {
-                roomOnlineUsers.remove(roomId);
+        int end = destination.indexOf('/', ROOM_TOPIC_PREFIX.length());
+        UUID roomId = parseRoomId(destination.substring(ROOM_TOPIC_PREFIX.length(), end > 0 ? end : destination.length()));
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        // A client subscribes to several topics of the room; the first one joins
+        if (roomId == null || sessionId == null || localSessions.getOrDefault(sessionId, Set.of())
+                .contains(new Membership(roomId, user.userId(), user.username())))
+            return;
+
+        join(sessionId, roomId, user);
+    }
+
+    @EventListener
+    public void handleSessionDisconnect(SessionDisconnectEvent event) {
+        Set<Membership> memberships = localSessions.remove(event.getSessionId());
+        if (memberships == null) {
+            return;
+        }
+        for (Membership m : memberships) {
+            // Another tab of the user is still in the room
+            if (release(event.getSessionId(), m.roomId(), m.userId())) {
+                leave(m.roomId(), m.userId());
             }
+        }
+    }
 
-            if (removed) {
-                broadcastPresence(roomId);
-                broadcastLeave(roomId, name);
+    @EventListener
+    public void handlePresenceExpired(PresenceExpiredEvent event) {
+        broadcastPresence(event.roomId());
+        broadcastLeave(event.roomId(), event.presence().username());
+        flushIfEmpty(event.roomId());
+    }
+
+    /**
+     * Heartbeat every user with an open session on this node. Entries of a node
+     * that stops doing this (crash, network split) expire after the presence TTL.
+     */
+    @Scheduled(fixedDelayString = "${collaboration.presence.heartbeat-interval:PT10S}")
+    public void refreshLocalSessions() {
+        for (Set<Membership> memberships : localSessions.values()) {
+            for (Membership m : memberships) {
+                // Expired meanwhile (e.g. a long GC pause): put the user back
+                if (!presenceService.updateLastSeen(m.roomId(), m.userId())
+                        && presenceService.join(m.roomId(), m.userId(), m.name())) {
+                    broadcastPresence(m.roomId());
+                }
             }
         }
     }
 
-    private void broadcastJoin(String roomId, String username) {
-        Map<String, Object> message = Map.of(
-                "type", "presence.event",
-                "event", "joined",
-                "message", username + " has joined");
-        messagingTemplate.convertAndSend((String) ("/topic/room." + roomId + ".presence"), message);
+    private void join(String sessionId, UUID roomId, StompPrincipal user) {
+        boolean joined = presenceService.join(roomId, user.userId(), user.username());
+        if (sessionId != null) {
+            localSessions.computeIfAbsent(sessionId, k -> ConcurrentHashMap.newKeySet())
+                    .add(new Membership(roomId, user.userId(), user.username()));
+            memberSessions.computeIfAbsent(new RoomMember(roomId, user.userId()), k -> ConcurrentHashMap.newKeySet())
+                    .add(sessionId);
+        }
+
+        broadcastPresence(roomId);
+        if (joined) {
+            broadcastJoin(roomId, user.username());
+        }
+    }
+
+    /**
+     * Drop a session's hold on a room membership. True if no other session on this
+     * node still holds it, so the user really leaves.
+     */
+    private boolean release(String sessionId, UUID roomId, String userId) {
+        RoomMember member = new RoomMember(roomId, userId);
+        memberSessions.computeIfPresent(member, (k, sessions) -> {
+            sessions.remove(sessionId);
+            return sessions.isEmpty() ? null : sessions;
+        });
+        return !memberSessions.containsKey(member);
+    }
+
+    private void leave(UUID roomId, String userId) {
+        Optional<UserPresence> removed = presenceService.leave(roomId, userId);
+        if (removed.isPresent()) {
+            broadcastPresence(roomId);
+            broadcastLeave(roomId, removed.get().username());
+        }
+        flushIfEmpty(roomId);
+    }
+
+    private void flushIfEmpty(UUID roomId) {
+        if (presenceService.countOnline(roomId) == 0) {
+            writeBehindService.flushRoom(roomId.toString());
+        }
     }
 
-    private void broadcastLeave(String roomId, String username) {
-        Map<String, Object> message = Map.of(
-                "type", "presence.event",
-                "event", "left",
-                "message", username + " has left");
-        messagingTemplate.convertAndSend((String) ("/topic/room." + roomId + ".presence"), message);
+    private void broadcastJoin(UUID roomId, String username) {
+        broadcastService.broadcast(presenceTopic(roomId), PresenceEventMessage.joined(username));
     }
 
-    private void broadcastPresence(String roomId) {
-        Set<SimpleUser> users = roomOnlineUsers.get(roomId);
-        if (users == null)
+    private void broadcastLeave(UUID roomId, String username) {
+        broadcastService.broadcast(presenceTopic(roomId), PresenceEventMessage.left(username));
+    }
+
+    private void broadcastPresence(UUID roomId) {
+        Set<UserPresence> online = presenceService.getOnlineUsers(roomId);
+        if (online.isEmpty())
             return;
 
-        // Topic: /topic/room.{roomId}.presence
-        // Event logic: The frontend expects "presence.users".
-        // We'll wrap it: { type: "presence.users", users: [...] }
+        List<SimpleUser> users = online.stream()
+                .map(p -> new SimpleUser(p.userId(), p.username()))
+                .toList();
+        broadcastService.broadcast(presenceTopic(roomId), new PresenceUsersMessage(users));
+    }
+
+    private void sendReplay(String sessionId, UUID roomId, RoomReplayService.Replay replay) {
+        List<RoomReplayMessage.Replayed> messages = replay.entries().stream()
+                .map(entry -> new RoomReplayMessage.Replayed(entry.sequence(), entry.destination(),
+                        new String(entry.payload(), StandardCharsets.UTF_8)))
+                .toList();
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId(sessionId);
+        headers.setLeaveMutable(true);
+        messagingTemplate.convertAndSendToUser(sessionId, REPLAY_DESTINATION,
+                new RoomReplayMessage(roomId.toString(), replay.complete(), replay.sequence(), messages),
+                headers.getMessageHeaders());
+    }
 
-        Map<String, Object> message = Map.of(
-                "type", "presence.users",
-                "users", users);
+    private static String presenceTopic(UUID roomId) {
+        return "/topic/room." + roomId + ".presence";
+    }
+
+    private static UUID parseRoomId(String roomId) {
+        if (roomId == null)
+            return null;
+        try {
+            return UUID.fromString(roomId);
+        } catch (IllegalArgumentException e) {
+            log.debug("Ignoring presence for invalid room id {}", roomId);
+            return null;
+        }
+    }
+
+    private record Membership(UUID roomId, String userId, String name) {
+    }
 
-        messagingTemplate.convertAndSend((String) ("/topic/room." + roomId + ".presence"), message);
+    private record RoomMember(UUID roomId, String userId) {
     }
 }
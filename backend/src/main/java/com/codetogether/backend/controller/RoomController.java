@@ -3,8 +3,13 @@ package com.codetogether.backend.controller;
 import com.codetogether.backend.dto.RoomRequest;
 import com.codetogether.backend.dto.RoomResponse;
 import com.codetogether.backend.dto.RoomPresence;
+import com.codetogether.backend.dto.RoomRouteResponse;
+import com.codetogether.backend.dto.RoomTreeResponse;
 import com.codetogether.backend.service.PresenceService;
+import com.codetogether.backend.service.RoomRoutingService;
 import com.codetogether.backend.service.RoomService;
+import com.codetogether.backend.service.RoomTreeService;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -21,10 +26,15 @@ public class RoomController {
 
     private final RoomService roomService;
     private final PresenceService presenceService;
+    private final RoomRoutingService roomRoutingService;
+    private final RoomTreeService roomTreeService;
 
-    public RoomController(RoomService roomService, PresenceService presenceService) {
+    public RoomController(RoomService roomService, PresenceService presenceService,
+            RoomRoutingService roomRoutingService, RoomTreeService roomTreeService) {
         this.roomService = roomService;
         this.presenceService = presenceService;
+        this.roomRoutingService = roomRoutingService;
+        this.roomTreeService = roomTreeService;
     }
 
     @PostMapping
@@ -57,4 +67,26 @@ public class RoomController {
         RoomPresence presence = presenceService.getRoomPresence(id);
         return ResponseEntity.ok(presence);
     }
+
+    /**
+     * Folders and files of the room without file content, for the file explorer.
+     * A request whose If-None-Match carries the current ETag gets a 304 with no body;
+     * clients revalidate on every use (no-cache).
+     */
+    @GetMapping("/{id}/tree")
+    public ResponseEntity<RoomTreeResponse> getRoomTree(@PathVariable UUID id) {
+        RoomTreeService.Snapshot snapshot = roomTreeService.getTree(id);
+        return ResponseEntity.ok()
+                .eTag(snapshot.etag())
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(snapshot.tree());
+    }
+
+    /**
+     * Node that owns the room; clients open their WebSocket there.
+     */
+    @GetMapping("/{id}/route")
+    public ResponseEntity<RoomRouteResponse> getRoomRoute(@PathVariable UUID id) {
+        return ResponseEntity.ok(roomRoutingService.route(id));
+    }
 }
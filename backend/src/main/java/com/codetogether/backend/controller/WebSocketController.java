@@ -1,27 +1,37 @@
 package com.codetogether.backend.controller;
 
 import com.codetogether.backend.dto.*;
+import com.codetogether.backend.security.StompPrincipal;
+import com.codetogether.backend.service.CursorAggregator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.handler.annotation.SendTo;
-import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.stereotype.Controller;
 
+import java.security.Principal;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
 /**
  * WebSocket controller for handling real-time collaboration messages.
  * Manages code changes, cursor positions, and chat messages within rooms.
+ * The sender of every message is the session's authenticated user; user fields
+ * in payloads are ignored.
  */
 @Controller
 public class WebSocketController {
 
     private static final Logger logger = LoggerFactory.getLogger(WebSocketController.class);
 
+    private final CursorAggregator cursorAggregator;
+
+    public WebSocketController(CursorAggregator cursorAggregator) {
+        this.cursorAggregator = cursorAggregator;
+    }
+
     /**
      * Handle code change events in a room.
      * Receives code changes from a user and broadcasts to all users in the room.
@@ -38,49 +48,46 @@ public class WebSocketController {
     public CodeSyncResponse handleCodeChange(
             @DestinationVariable UUID roomId,
             @Payload CodeChangeMessage message,
-            SimpMessageHeaderAccessor headerAccessor) {
+            Principal principal) {
 
+        String userId = userIdOf(principal);
         logger.debug("Code change received for room: {}, file: {}, user: {}",
-                roomId, message.fileId(), message.userId());
+                roomId, message.fileId(), userId);
 
         // Transform to response with server timestamp
         return new CodeSyncResponse(
                 message.fileId(),
                 message.content(),
-                message.userId(),
+                userId,
                 LocalDateTime.now(),
                 message.cursorPos());
     }
 
     /**
      * Handle cursor position updates in a room.
-     * Receives cursor position from a user and broadcasts to all users in the room.
+     * Updates are coalesced: the room receives one CursorBatchMessage per tick
+     * with the latest position of every user that moved.
      * 
      * Endpoint: /app/room/{roomId}/cursor
      * Broadcast to: /topic/room/{roomId}/cursor
      * 
      * @param roomId  the room ID
      * @param message the cursor message with position and user info
-     * @return CursorMessage to broadcast to all clients except sender
      */
     @MessageMapping("/room/{roomId}/cursor")
-    @SendTo("/topic/room/{roomId}/cursor")
-    public CursorMessage handleCursorPosition(
+    public void handleCursorPosition(
             @DestinationVariable UUID roomId,
             @Payload CursorMessage message,
-            SimpMessageHeaderAccessor headerAccessor) {
+            Principal principal) {
 
-        logger.trace("Cursor update for room: {}, file: {}, user: {}, pos: {}:{}",
-                roomId, message.fileId(), message.username(),
-                message.cursorPosition().line(), message.cursorPosition().column());
+        if (principal == null) {
+            return;
+        }
+        logger.trace("Cursor update for room: {}, file: {}, user: {}",
+                roomId, message.fileId(), principal.getName());
 
-        // Return message with server timestamp
-        return new CursorMessage(
-                message.roomId(),
-                message.fileId(),
-                message.username(),
-                message.cursorPosition(),
-                System.currentTimeMillis());
+        cursorAggregator.submit("/topic/room/" + roomId + "/cursor", new CursorMessage(
+                roomId, message.fileId(), principal.getName(), message.cursorPosition(), message.timestamp()));
     }
 
     /**
@@ -92,18 +99,28 @@ public class WebSocketController {
      * 
      * @param roomId  the room ID
      * @param message the chat message
-     * @return ChatMessage to broadcast to all clients
+     * @return ChatMessage to broadcast to all clients, sent as the session's user
      */
     @MessageMapping("/room/{roomId}/chat")
     @SendTo("/topic/room/{roomId}/chat")
     public ChatMessage handleChatMessage(
             @DestinationVariable UUID roomId,
             @Payload ChatMessage message,
-            SimpMessageHeaderAccessor headerAccessor) {
+            Principal principal) {
 
         logger.debug("Chat message received for room: {}, user: {}",
-                roomId, message.username());
+                roomId, principal != null ? principal.getName() : null);
+
+        return new ChatMessage(
+                userIdOf(principal),
+                principal != null ? principal.getName() : null,
+                message.roomId(),
+                message.content(),
+                message.type(),
+                message.timestamp());
+    }
 
-        return message;
+    private static String userIdOf(Principal principal) {
+        return principal instanceof StompPrincipal user ? user.userId() : null;
     }
 }
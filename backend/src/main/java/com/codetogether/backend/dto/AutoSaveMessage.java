@@ -0,0 +1,9 @@
+package com.codetogether.backend.dto;
+
+/**
+ * Broadcast to /topic/room.{roomId}.file.{fileId}.autosave when a user toggles auto-save.
+ */
+public record AutoSaveMessage(
+        boolean enabled,
+        String username) {
+}
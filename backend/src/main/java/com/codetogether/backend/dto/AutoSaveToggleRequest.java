@@ -0,0 +1,10 @@
+package com.codetogether.backend.dto;
+
+/**
+ * Payload of /app/auto-save-toggle.
+ */
+public record AutoSaveToggleRequest(
+        String roomId,
+        String fileId,
+        Boolean enabled) {
+}
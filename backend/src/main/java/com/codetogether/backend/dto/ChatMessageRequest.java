@@ -0,0 +1,9 @@
+package com.codetogether.backend.dto;
+
+/**
+ * Payload of /app/chat.message. The sender is the session's authenticated principal.
+ */
+public record ChatMessageRequest(
+        String roomId,
+        String text) {
+}
@@ -0,0 +1,11 @@
+package com.codetogether.backend.dto;
+
+import java.util.List;
+
+/**
+ * Latest cursor of every user that moved during one aggregation tick.
+ */
+public record CursorBatchMessage(
+        long timestamp,
+        List<CursorMessage> cursors) {
+}
@@ -0,0 +1,13 @@
+package com.codetogether.backend.dto;
+
+import java.util.Set;
+
+/**
+ * Who is editing a file, broadcast to /topic/room.{roomId}.editing-indicators
+ * for the file tree.
+ */
+public record EditingIndicatorsMessage(
+        String fileId,
+        int editingCount,
+        Set<String> editors) {
+}
@@ -0,0 +1,10 @@
+package com.codetogether.backend.dto;
+
+import java.util.UUID;
+
+/**
+ * Payload naming a deleted file or folder.
+ */
+public record EntityIdMessage(
+        UUID id) {
+}
@@ -0,0 +1,15 @@
+package com.codetogether.backend.dto;
+
+import java.util.List;
+
+/**
+ * Delta broadcast to everyone editing a file once the server has applied it.
+ * The ops are already transformed against every edit up to {@code revision - 1}.
+ */
+public record FileDeltaMessage(
+        String roomId,
+        String fileId,
+        String clientId,
+        long revision,
+        List<TextOperation> ops) {
+}
@@ -0,0 +1,14 @@
+package com.codetogether.backend.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class FileDeltaRequest {
+    private String roomId;
+    private String fileId;
+    private String clientId; // Echoed back so the sender can recognise its own ack
+    private long baseRevision; // Revision the ops were produced against
+    private List<TextOperation> ops; // Applied in order, each relative to the result of the previous one
+}
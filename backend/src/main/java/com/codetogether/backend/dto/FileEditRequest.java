@@ -6,6 +6,6 @@ import lombok.Data;
 public class FileEditRequest {
     private String roomId;
     private String fileId;
-    private String content; // Full content or patch, simplier to use content for now
-    // Could add patch/delta support later
+    private String content; // Full content; deltas go through FileDeltaRequest, this is the resync fallback
+    private Long revision; // Set by the server when broadcasting
 }
@@ -0,0 +1,31 @@
+package com.codetogether.backend.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Body of a 409 from PUT /api/files/{id}/content when the client's base was
+ * stale and its changes overlap changes made since. {@code content} is the
+ * current content with every non-conflicting client change merged in; each
+ * conflicted region still holds the current text. Resolve the regions and
+ * PUT again with {@code etag} as If-Match.
+ */
+public record FileMergeConflictResponse(
+        UUID fileId,
+        String etag,
+        String content,
+        List<Conflict> conflicts) {
+
+    /**
+     * @param line      first line of the region in {@code content} (0-based)
+     * @param lineCount lines of {@code content} the region spans
+     * @param ours      the client's text for the region
+     * @param theirs    the current text of the region
+     */
+    public record Conflict(
+            int line,
+            int lineCount,
+            String ours,
+            String theirs) {
+    }
+}
@@ -7,4 +7,5 @@ public class FilePresenceRequest {
     private String roomId;
     private String fileId;
     private String username; // Or userId, helpful for tracking who is editing
+    private String compression; // "deflate" on join: large snapshots may then arrive deflated
 }
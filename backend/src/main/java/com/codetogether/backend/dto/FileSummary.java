@@ -0,0 +1,15 @@
+package com.codetogether.backend.dto;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * File metadata of a room tree.
+ */
+public record FileSummary(
+        UUID id,
+        UUID folderId,
+        String name,
+        int size,
+        Instant updatedAt) {
+}
@@ -0,0 +1,17 @@
+package com.codetogether.backend.dto;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One version of a file. Listings leave {@code content} null.
+ *
+ * @param size content length in characters
+ */
+public record FileVersionResponse(
+        UUID fileId,
+        int version,
+        int size,
+        Instant createdAt,
+        String content) {
+}
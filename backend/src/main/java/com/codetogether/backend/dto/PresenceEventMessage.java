@@ -0,0 +1,19 @@
+package com.codetogether.backend.dto;
+
+/**
+ * A user joined or left a room: {@code { type: "presence.event", event: "joined" | "left", message }}.
+ */
+public record PresenceEventMessage(
+        String type,
+        String event,
+        String message) {
+
+    public static PresenceEventMessage joined(String username) {
+        return new PresenceEventMessage("presence.event", "joined", username + " has joined");
+    }
+
+    public static PresenceEventMessage left(String username) {
+        return new PresenceEventMessage("presence.event", "left",
+                (username != null ? username : "A user") + " has left");
+    }
+}
@@ -0,0 +1,15 @@
+package com.codetogether.backend.dto;
+
+import java.util.List;
+
+/**
+ * Everyone online in a room: {@code { type: "presence.users", users: [{ userId, name }] }}.
+ */
+public record PresenceUsersMessage(
+        String type,
+        List<SimpleUser> users) {
+
+    public PresenceUsersMessage(List<SimpleUser> users) {
+        this("presence.users", users);
+    }
+}
@@ -1,14 +1,9 @@
 package com.codetogether.backend.dto;
 
-import lombok.Data;
-import lombok.NoArgsConstructor;
-import lombok.AllArgsConstructor;
-
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
-public class RoomPresenceRequest {
-    private String roomId;
-    private String username;
-    private String timestamp; // Optional, can ignore
+/**
+ * Payload of /app/presence.join and /app/presence.leave. The user is the
+ * session's authenticated principal.
+ */
+public record RoomPresenceRequest(
+        String roomId) {
 }
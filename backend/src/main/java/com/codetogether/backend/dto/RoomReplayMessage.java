@@ -0,0 +1,26 @@
+package com.codetogether.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import java.util.List;
+
+/**
+ * Answer to /app/presence.resume on /user/queue/room-replay: the room broadcasts
+ * the session missed, in order. If {@code complete} is false they are no longer
+ * kept and the client reloads the room; {@code sequence} is the room's latest.
+ */
+public record RoomReplayMessage(
+        String roomId,
+        boolean complete,
+        long sequence,
+        List<Replayed> messages) {
+
+    /**
+     * One broadcast as it was sent to {@code destination}; {@code payload} is its JSON.
+     */
+    public record Replayed(
+            long sequence,
+            String destination,
+            @JsonRawValue String payload) {
+    }
+}
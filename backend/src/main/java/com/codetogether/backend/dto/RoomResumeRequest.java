@@ -0,0 +1,14 @@
+package com.codetogether.backend.dto;
+
+import java.util.Map;
+
+/**
+ * Payload of /app/presence.resume: rejoin a room after a reconnect, replaying the
+ * broadcasts the client missed. {@code lastSequence} is the highest {@code seq}
+ * header it saw in the room, {@code topics} the last one per destination.
+ */
+public record RoomResumeRequest(
+        String roomId,
+        Long lastSequence,
+        Map<String, Long> topics) {
+}
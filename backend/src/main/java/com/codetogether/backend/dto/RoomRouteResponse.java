@@ -0,0 +1,10 @@
+package com.codetogether.backend.dto;
+
+import java.util.UUID;
+
+public record RoomRouteResponse(
+        UUID roomId,
+        String nodeId,
+        String url,
+        boolean local) {
+}
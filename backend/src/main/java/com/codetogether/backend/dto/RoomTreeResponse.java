@@ -0,0 +1,31 @@
+package com.codetogether.backend.dto;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Folder and file tree of a room for rendering the file explorer: names and
+ * sizes only, no file content. Fetch a file to read it.
+ */
+public record RoomTreeResponse(
+        UUID roomId,
+        List<FolderNode> folders) {
+
+    public record FolderNode(
+            UUID id,
+            String name,
+            Instant updatedAt,
+            List<FileNode> files) {
+    }
+
+    /**
+     * @param size content length in characters
+     */
+    public record FileNode(
+            UUID id,
+            String name,
+            int size,
+            Instant updatedAt) {
+    }
+}
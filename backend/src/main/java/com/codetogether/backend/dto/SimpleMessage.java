@@ -1,14 +1,10 @@
 package com.codetogether.backend.dto;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
-
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
-public class SimpleMessage {
-    private String userId;
-    private String name;
-    private String text;
+/**
+ * Chat message broadcast to /topic/room.{roomId}.chat.
+ */
+public record SimpleMessage(
+        String userId,
+        String name,
+        String text) {
 }
@@ -1,16 +1,9 @@
 package com.codetogether.backend.dto;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.EqualsAndHashCode;
-import lombok.NoArgsConstructor;
-import java.util.Objects;
-
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
-@EqualsAndHashCode(of = "userId")
-public class SimpleUser {
-    private String userId;
-    private String name;
+/**
+ * Entry of the presence.users list the frontend renders.
+ */
+public record SimpleUser(
+        String userId,
+        String name) {
 }
@@ -0,0 +1,35 @@
+package com.codetogether.backend.dto;
+
+/**
+ * A single positional edit against a document.
+ * INSERT carries the inserted text, DELETE carries the number of removed characters.
+ */
+public record TextOperation(
+        Type type,
+        int position,
+        String text,
+        int length) {
+
+    public enum Type {
+        INSERT, DELETE
+    }
+
+    public static TextOperation insert(int position, String text) {
+        return new TextOperation(Type.INSERT, position, text, text.length());
+    }
+
+    public static TextOperation delete(int position, int length) {
+        return new TextOperation(Type.DELETE, position, null, length);
+    }
+
+    public boolean isInsert() {
+        return type == Type.INSERT;
+    }
+
+    /**
+     * Number of characters this operation adds (INSERT) or removes (DELETE).
+     */
+    public int span() {
+        return isInsert() ? text.length() : length;
+    }
+}
@@ -0,0 +1,10 @@
+package com.codetogether.backend.dto;
+
+/**
+ * File tree change broadcast to /topic/folder/{roomId}, e.g. "file-updated"
+ * with a FileResponse or "folder-deleted" with an {@link EntityIdMessage}.
+ */
+public record TreeEventMessage(
+        String type,
+        Object payload) {
+}
@@ -3,6 +3,7 @@ package com.codetogether.backend.dto;
 import java.time.LocalDateTime;
 
 public record UserPresence(
+        String userId,
         String username,
         LocalDateTime joinedAt,
         LocalDateTime lastSeen) {
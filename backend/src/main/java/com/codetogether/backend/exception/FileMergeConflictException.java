@@ -0,0 +1,20 @@
+package com.codetogether.backend.exception;
+
+import com.codetogether.backend.dto.FileMergeConflictResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class FileMergeConflictException extends RuntimeException {
+
+    private final FileMergeConflictResponse conflict;
+
+    public FileMergeConflictException(FileMergeConflictResponse conflict) {
+        super(conflict.conflicts().size() + " conflicting region(s) in file " + conflict.fileId());
+        this.conflict = conflict;
+    }
+
+    public FileMergeConflictResponse getConflict() {
+        return conflict;
+    }
+}
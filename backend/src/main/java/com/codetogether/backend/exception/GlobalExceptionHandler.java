@@ -1,6 +1,7 @@
 package com.codetogether.backend.exception;
 
 import com.codetogether.backend.dto.ErrorResponse;
+import com.codetogether.backend.dto.FileMergeConflictResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataIntegrityViolationException;
@@ -100,6 +101,39 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorResponse, HttpStatus.UNAUTHORIZED);
     }
 
+    /**
+     * Handle stale If-Match bases the server no longer knows (412 Precondition Failed)
+     */
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<ErrorResponse> handlePreconditionFailedException(
+            PreconditionFailedException ex, WebRequest request) {
+
+        logger.warn("Precondition failed: {}", ex.getMessage());
+
+        ErrorResponse errorResponse = new ErrorResponse(
+                HttpStatus.PRECONDITION_FAILED.value(),
+                HttpStatus.PRECONDITION_FAILED.getReasonPhrase(),
+                ex.getMessage(),
+                LocalDateTime.now());
+
+        return new ResponseEntity<>(errorResponse, HttpStatus.PRECONDITION_FAILED);
+    }
+
+    /**
+     * Handle content merges with conflicting regions (409 Conflict)
+     * The body carries the merge so the client can resolve it without refetching the file.
+     */
+    @ExceptionHandler(FileMergeConflictException.class)
+    public ResponseEntity<FileMergeConflictResponse> handleFileMergeConflictException(
+            FileMergeConflictException ex, WebRequest request) {
+
+        logger.info("Merge conflict: {}", ex.getMessage());
+
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .eTag(ex.getConflict().etag())
+                .body(ex.getConflict());
+    }
+
     /**
      * Handle data integrity violations (409 Conflict)
      * Typically occurs with duplicate keys, constraint violations, etc.
@@ -3,8 +3,13 @@ package com.codetogether.backend.mapper;
 import com.codetogether.backend.dto.FileResponse;
 import com.codetogether.backend.model.File;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 @Mapper(componentModel = "spring")
 public interface FileMapper {
+    @Mapping(target = "content", ignore = true)
     FileResponse toResponse(File file);
+
+    @Mapping(target = "content", source = "content")
+    FileResponse toResponse(File file, String content);
 }
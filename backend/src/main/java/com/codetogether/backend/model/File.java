@@ -30,8 +30,13 @@ public class File {
     @Column(nullable = false)
     private String name;
 
-    @Column(columnDefinition = "TEXT")
-    private String content;
+    // Hash of the content blob (see ContentStore); null for a file without content
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    // Content length in characters
+    @Column(nullable = false)
+    private int size;
 
     @Column(name = "created_at", nullable = false, updatable = false)
     private Instant createdAt;
@@ -1,18 +1,44 @@
 package com.codetogether.backend.repository;
 
+import com.codetogether.backend.dto.FileSummary;
 import com.codetogether.backend.model.File;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.List;
-import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface FileRepository extends JpaRepository<File, UUID> {
     List<File> findAllByFolderIdOrderByCreatedAtAsc(UUID folderId);
 
-    Optional<File> findByFolderIdAndName(UUID folderId, String name);
+    boolean existsByFolderIdAndName(UUID folderId, String name);
+
+    boolean existsByFolderIdAndNameAndIdNot(UUID folderId, String name, UUID id);
 
     void deleteByFolderId(UUID folderId);
+
+    /**
+     * Metadata of every file in a room, in one query.
+     */
+    @Query("select new com.codetogether.backend.dto.FileSummary("
+            + "f.id, f.folderId, f.name, f.size, f.updatedAt) "
+            + "from File f where f.folderId in (select d.id from Folder d where d.roomId = :roomId) "
+            + "order by f.createdAt")
+    List<FileSummary> findSummariesByRoomId(@Param("roomId") UUID roomId);
+
+    /**
+     * Point a file at new content only if it still has {@code expectedHash} (null for
+     * none). Returns 0 if another save or flush changed it first.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE files SET content_hash = :hash, size = :size, updated_at = :updatedAt "
+            + "WHERE id = :id AND content_hash IS NOT DISTINCT FROM CAST(:expectedHash AS VARCHAR)",
+            nativeQuery = true)
+    int updateContentIfUnchanged(@Param("id") UUID id, @Param("expectedHash") String expectedHash,
+            @Param("hash") String hash, @Param("size") int size, @Param("updatedAt") Instant updatedAt);
 }
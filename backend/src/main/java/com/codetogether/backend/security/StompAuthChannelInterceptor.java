@@ -0,0 +1,77 @@
+package com.codetogether.backend.security;
+
+import com.codetogether.backend.model.User;
+import com.codetogether.backend.service.CustomUserDetailsService;
+import com.codetogether.backend.util.JwtUtil;
+import io.jsonwebtoken.JwtException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.CachingUserDetailsService;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Authenticates a STOMP session once, on CONNECT, from its
+ * {@code Authorization: Bearer <jwt>} header and binds a {@link StompPrincipal}
+ * to it. Later frames carry no token and are not checked again; a CONNECT
+ * without a valid token is answered with an ERROR frame and the socket closed.
+ *
+ * The HTTP handshake on /ws stays open because browsers cannot set headers on
+ * WebSocket upgrades.
+ */
+@Component
+@Slf4j
+public class StompAuthChannelInterceptor implements ChannelInterceptor {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final JwtUtil jwtUtil;
+    private final CachingUserDetailsService userDetailsService;
+
+    public StompAuthChannelInterceptor(JwtUtil jwtUtil, CustomUserDetailsService userDetailsService,
+            UserCache jwtUserCache) {
+        this.jwtUtil = jwtUtil;
+        this.userDetailsService = new CachingUserDetailsService(userDetailsService);
+        this.userDetailsService.setUserCache(jwtUserCache);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() != StompCommand.CONNECT) {
+            return message;
+        }
+        // The handler reads the user back from these (mutable) headers and keeps it for the session
+        accessor.setUser(authenticate(accessor.getFirstNativeHeader("Authorization"), accessor.getSessionId()));
+        return message;
+    }
+
+    private StompPrincipal authenticate(String authorization, String sessionId) {
+        if (authorization == null || !authorization.startsWith(BEARER_PREFIX)) {
+            throw new BadCredentialsException("Missing bearer token");
+        }
+        String token = authorization.substring(BEARER_PREFIX.length());
+        try {
+            UserDetails user = userDetailsService.loadUserByUsername(jwtUtil.extractUsername(token));
+            if (!jwtUtil.validateToken(token, user) || !user.isEnabled()) {
+                throw new BadCredentialsException("Invalid token");
+            }
+            String userId = user instanceof User entity && entity.getId() != null
+                    ? entity.getId().toString()
+                    : user.getUsername();
+            log.debug("STOMP session {} authenticated as {}", sessionId, user.getUsername());
+            return new StompPrincipal(userId, user.getUsername());
+        } catch (JwtException | IllegalArgumentException | UsernameNotFoundException e) {
+            log.debug("Rejecting STOMP session {}: {}", sessionId, e.getMessage());
+            throw new BadCredentialsException("Invalid token", e);
+        }
+    }
+}
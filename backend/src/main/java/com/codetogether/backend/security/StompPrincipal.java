@@ -0,0 +1,16 @@
+package com.codetogether.backend.security;
+
+import java.security.Principal;
+
+/**
+ * Identity bound to a STOMP session when its CONNECT frame is authenticated.
+ * Spring attaches it to every later frame of the session, so handlers can take
+ * it as a {@link Principal} argument; user destinations resolve by username.
+ */
+public record StompPrincipal(String userId, String username) implements Principal {
+
+    @Override
+    public String getName() {
+        return username;
+    }
+}
@@ -0,0 +1,59 @@
+package com.codetogether.backend.security;
+
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * UserCache whose entries live for a short, fixed time, so JWT-authenticated
+ * requests do not load the user from the database each time while changes to
+ * a user (e.g. disabling it) still apply within {@code ttl}.
+ */
+public class TtlUserCache implements UserCache {
+
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final Map<String, Entry> users = new ConcurrentHashMap<>();
+
+    public TtlUserCache(Duration ttl, int maxEntries) {
+        this.ttlMillis = ttl.toMillis();
+        this.maxEntries = maxEntries;
+    }
+
+    @Override
+    public UserDetails getUserFromCache(String username) {
+        Entry entry = users.get(username);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt() < System.currentTimeMillis()) {
+            users.remove(username, entry);
+            return null;
+        }
+        return entry.user();
+    }
+
+    @Override
+    public void putUserInCache(UserDetails user) {
+        if (users.size() >= maxEntries) {
+            long now = System.currentTimeMillis();
+            users.values().removeIf(entry -> entry.expiresAt() < now);
+            if (users.size() >= maxEntries) {
+                // Only live entries left: start over rather than track recency
+                users.clear();
+            }
+        }
+        users.put(user.getUsername(), new Entry(user, System.currentTimeMillis() + ttlMillis));
+    }
+
+    @Override
+    public void removeUserFromCache(String username) {
+        users.remove(username);
+    }
+
+    private record Entry(UserDetails user, long expiresAt) {
+    }
+}
@@ -0,0 +1,20 @@
+package com.codetogether.backend.service;
+
+/**
+ * Topic broadcasts whose payload is serialized to JSON once, up front. The
+ * broker then hands that same immutable byte array to every subscribed
+ * session instead of each caller going through message conversion.
+ */
+public interface BroadcastService {
+
+    /**
+     * Header marking a message sent through this service, so the bytes that
+     * reach sessions can be counted against the bytes encoded.
+     */
+    String BROADCAST_HEADER = "broadcast";
+
+    /**
+     * Serialize {@code payload} once and publish it to {@code destination}.
+     */
+    void broadcast(String destination, Object payload);
+}
@@ -0,0 +1,37 @@
+package com.codetogether.backend.service;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Content-addressed store of file bodies. Identical content is stored once and
+ * referenced from files by its hash; blobs that no file references any more
+ * are deleted by a background sweep.
+ */
+public interface ContentStore {
+
+    /**
+     * Store content unless a blob with its hash exists, and return the hash.
+     * Null content stores nothing and returns null.
+     */
+    String put(String content);
+
+    /**
+     * {@link #put} for several contents at once; hashes are in input order.
+     */
+    List<String> putAll(List<String> contents);
+
+    Optional<String> get(String hash);
+
+    /**
+     * Stream a blob as UTF-8 without building the content as a string. The stored
+     * bytes may be read whole first; only decoding them is streamed.
+     */
+    Optional<InputStream> open(String hash);
+
+    /**
+     * Delete blobs no file references. Returns the number deleted.
+     */
+    int deleteUnreferenced();
+}
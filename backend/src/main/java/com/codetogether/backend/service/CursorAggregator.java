@@ -0,0 +1,22 @@
+package com.codetogether.backend.service;
+
+import com.codetogether.backend.dto.CursorMessage;
+
+/**
+ * Coalesces cursor updates so each cursor topic receives at most one
+ * {@link com.codetogether.backend.dto.CursorBatchMessage} per tick, holding only
+ * the latest position per (file, user).
+ */
+public interface CursorAggregator {
+
+    /**
+     * Queue a cursor update for the next flush of {@code destination},
+     * replacing any not yet sent update of the same user in the same file.
+     */
+    void submit(String destination, CursorMessage cursor);
+
+    /**
+     * Send everything queued now.
+     */
+    void flush();
+}
@@ -0,0 +1,72 @@
+package com.codetogether.backend.service;
+
+import com.codetogether.backend.dto.TextOperation;
+import com.codetogether.backend.util.Rope;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Authoritative in-memory copy of files that are being edited live.
+ * Documents are loaded from the files table on first use, edited incrementally
+ * and evicted once idle. Loading a file whose row or content is missing fails with
+ * a {@link com.codetogether.backend.exception.ResourceNotFoundException}.
+ */
+public interface DocumentEngine {
+
+    /**
+     * Get a snapshot of the document, loading it from the database if it is not open
+     */
+    Snapshot open(String fileId);
+
+    /**
+     * Get a snapshot of the document only if it is already open
+     */
+    Optional<Snapshot> find(String fileId);
+
+    /**
+     * Rebase ops made against {@code baseRevision} onto the current revision and apply them.
+     * {@code onApplied} runs while the document is still locked, so listeners observe
+     * edits in revision order. A rejected edit carries the current snapshot for a resync.
+     */
+    Edit applyDelta(String fileId, long baseRevision, List<TextOperation> ops, Consumer<Edit> onApplied);
+
+    /**
+     * Replace the whole content, starting a new revision and discarding the op history
+     */
+    Edit replaceContent(String fileId, String content, Consumer<Edit> onApplied);
+
+    /**
+     * If the document is open, replace its content with what {@code update} returns for
+     * the current snapshot, under the document's lock so no edit lands in between.
+     * An exception from {@code update} leaves the document unchanged. {@code onApplied}
+     * runs under the same lock, like {@link #replaceContent}'s. Empty if the document
+     * is not open.
+     */
+    Optional<Edit> updateIfOpen(String fileId, Function<Snapshot, String> update, Consumer<Edit> onApplied);
+
+    /**
+     * Run {@code action} with the current snapshot, loading the document if it is not
+     * open, while no edit can be applied: whatever it publishes is ordered after the
+     * broadcasts of the snapshot's revision and before those of later ones.
+     */
+    void withSnapshot(String fileId, Consumer<Snapshot> action);
+
+    /**
+     * Drop a document from memory
+     */
+    void close(String fileId);
+
+    int openDocumentCount();
+
+    /**
+     * Immutable view of a document at one revision. Holding it does not copy the text.
+     */
+    record Snapshot(String fileId, long revision, Rope content) {
+    }
+
+    record Edit(boolean applied, List<TextOperation> ops, Snapshot snapshot) {
+    }
+}
@@ -0,0 +1,11 @@
+package com.codetogether.backend.service;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Published when the write-behind stores a live document. Only the file's size and
+ * update time changed, so cached room trees patch the file instead of being dropped.
+ */
+public record FileContentWrittenEvent(UUID roomId, UUID fileId, int size, Instant updatedAt) {
+}
@@ -2,6 +2,7 @@ package com.codetogether.backend.service;
 
 import com.codetogether.backend.dto.FileRequest;
 import com.codetogether.backend.dto.FileResponse;
+import java.io.InputStream;
 import java.util.List;
 import java.util.UUID;
 
@@ -12,9 +13,19 @@ public interface FileService {
 
     FileResponse getFile(UUID fileId);
 
+    /**
+     * The file's content as a UTF-8 stream, decompressed as it is read.
+     */
+    InputStream openContent(UUID fileId);
+
     FileResponse renameFile(UUID fileId, String newName);
 
-    FileResponse updateFileContent(UUID fileId, String content);
+    /**
+     * Replace a file's content. With a {@code baseHash} (from If-Match) that is no
+     * longer current, the changes since that base are three-way merged with the
+     * current content; overlapping changes throw a FileMergeConflictException.
+     */
+    FileResponse updateFileContent(UUID fileId, String content, String baseHash);
 
     void deleteFile(UUID fileId);
 }
@@ -0,0 +1,43 @@
+package com.codetogether.backend.service;
+
+import com.codetogether.backend.dto.FileVersionResponse;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Version history of file content. Each version is stored as a delta from the
+ * one before, with a full keyframe every {@code collaboration.history.keyframe-interval}
+ * versions, so rebuilding any version applies at most that many deltas.
+ */
+public interface FileVersionService {
+
+    /**
+     * Record content as the file's next version unless it matches the latest one.
+     * Live-edit flushes ({@code explicitSave} false) are recorded at most once per
+     * {@code collaboration.history.min-interval}. The content must already be in the
+     * {@link ContentStore}. Inside a transaction, the version is recorded once it has
+     * committed, in a transaction of its own; a failure is logged, never thrown, so
+     * history cannot undo or block a content write.
+     */
+    void record(UUID fileId, String content, String contentHash, boolean explicitSave);
+
+    /**
+     * Versions of a file, newest first, without content.
+     */
+    List<FileVersionResponse> listVersions(UUID fileId);
+
+    FileVersionResponse getVersion(UUID fileId, int version);
+
+    /**
+     * Content of the newest version of the file with the given content hash.
+     */
+    Optional<String> findContent(UUID fileId, String contentHash);
+
+    /**
+     * Apply the retention limits, turning the oldest kept version of each trimmed
+     * file into a keyframe. Returns the number of versions deleted.
+     */
+    int compact();
+}
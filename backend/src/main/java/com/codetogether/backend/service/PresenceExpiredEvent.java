@@ -0,0 +1,12 @@
+package com.codetogether.backend.service;
+
+import com.codetogether.backend.dto.UserPresence;
+
+import java.util.UUID;
+
+/**
+ * Published when a user is dropped from a room because its heartbeats stopped,
+ * e.g. the node holding the session crashed.
+ */
+public record PresenceExpiredEvent(UUID roomId, UserPresence presence) {
+}
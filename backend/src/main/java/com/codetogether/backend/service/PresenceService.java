@@ -3,36 +3,48 @@ package com.codetogether.backend.service;
 import com.codetogether.backend.dto.RoomPresence;
 import com.codetogether.backend.dto.UserPresence;
 
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 
 /**
  * Service for tracking user presence in rooms.
- * Currently uses in-memory storage (ConcurrentHashMap).
- * Designed to be easily switchable to Redis in the future.
+ * Entries expire when they are not refreshed within the configured TTL, so users
+ * held by a crashed node disappear without a disconnect event; expiries are
+ * published as {@link PresenceExpiredEvent}.
+ * Backed by this JVM or by Redis (collaboration.presence.store).
  */
 public interface PresenceService {
 
     /**
-     * Add a user to a room's presence list
+     * Add a user to a room's presence list, or refresh it if already present.
+     *
+     * @return true if the user was not present before
      */
-    void userJoinedRoom(UUID roomId, String username);
+    boolean join(UUID roomId, String userId, String name);
 
     /**
-     * Remove a user from a room's presence list
+     * Remove a user from a room's presence list, returning the removed entry.
      */
-    void userLeftRoom(UUID roomId, String username);
+    Optional<UserPresence> leave(UUID roomId, String userId);
 
     /**
-     * Update user's last seen timestamp
+     * Update user's last seen timestamp (heartbeat).
+     *
+     * @return false if the user is not, or no longer, present
      */
-    void updateLastSeen(UUID roomId, String username);
+    boolean updateLastSeen(UUID roomId, String userId);
 
     /**
      * Get all online users in a room
      */
     Set<UserPresence> getOnlineUsers(UUID roomId);
 
+    /**
+     * Number of online users in a room, without materialising the list
+     */
+    int countOnline(UUID roomId);
+
     /**
      * Get room presence information
      */
@@ -41,7 +53,7 @@ public interface PresenceService {
     /**
      * Check if a user is online in a room
      */
-    boolean isUserOnline(UUID roomId, String username);
+    boolean isUserOnline(UUID roomId, String userId);
 
     /**
      * Remove all users from a room (cleanup)
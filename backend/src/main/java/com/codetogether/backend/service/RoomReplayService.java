@@ -0,0 +1,56 @@
+package com.codetogether.backend.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Numbers the topic broadcasts of each room and keeps the latest of them, so a
+ * client that reconnects can fetch what it missed instead of reloading the room.
+ * Cursor topics are not numbered: a missed cursor frame is stale anyway.
+ *
+ * Numbers grow per room, but a session's outbound lanes reorder frames of different
+ * topics, so clients track the last number per topic. Only the node owning a room
+ * numbers its broadcasts; ones sent from other nodes (REST calls in relay mode) go
+ * out unnumbered and are not replayed.
+ */
+public interface RoomReplayService {
+
+    /**
+     * STOMP header carrying a broadcast's sequence number in its room.
+     */
+    String SEQUENCE_HEADER = "seq";
+
+    /**
+     * Returned to {@code send} for destinations that are not replayed.
+     */
+    long NO_SEQUENCE = 0;
+
+    /**
+     * Record a broadcast and call {@code send} with its sequence number, under the
+     * room's lock, so each topic's numbers reach every session in order.
+     */
+    void publish(String destination, byte[] payload, LongConsumer send);
+
+    /**
+     * Run {@code action} with the room's broadcasts the client has not seen, under
+     * the room's lock: whatever it sends is ordered before later broadcasts.
+     *
+     * @param lastSequence   the highest number the client saw in the room
+     * @param topicSequences destination -> last number the client saw on it; topics
+     *                       missing here are replayed after {@code lastSequence}
+     */
+    void replay(String roomId, long lastSequence, Map<String, Long> topicSequences, Consumer<Replay> action);
+
+    /**
+     * @param complete false if some of those broadcasts are no longer kept (too old,
+     *                 another node, restart); the client must reload
+     * @param sequence the room's latest sequence number
+     */
+    record Replay(boolean complete, long sequence, List<Entry> entries) {
+    }
+
+    record Entry(long sequence, String destination, byte[] payload) {
+    }
+}
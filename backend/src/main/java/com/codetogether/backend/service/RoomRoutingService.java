@@ -0,0 +1,27 @@
+package com.codetogether.backend.service;
+
+import com.codetogether.backend.dto.RoomRouteResponse;
+
+import java.util.UUID;
+
+/**
+ * Sticky room-to-node assignment for running several backend nodes.
+ * Every node computes the same owner for a room without coordination.
+ */
+public interface RoomRoutingService {
+
+    /**
+     * Id of the node that owns the room
+     */
+    String ownerOf(UUID roomId);
+
+    /**
+     * Check if this node owns the room
+     */
+    boolean isLocal(UUID roomId);
+
+    /**
+     * Owner node and the URL clients should use for the room
+     */
+    RoomRouteResponse route(UUID roomId);
+}
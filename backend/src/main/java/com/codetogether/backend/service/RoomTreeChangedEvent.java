@@ -0,0 +1,10 @@
+package com.codetogether.backend.service;
+
+import java.util.UUID;
+
+/**
+ * Published when a folder or file of a room is created, renamed, deleted or
+ * written, so cached copies of the room's tree are dropped.
+ */
+public record RoomTreeChangedEvent(UUID roomId) {
+}
@@ -0,0 +1,22 @@
+package com.codetogether.backend.service;
+
+import com.codetogether.backend.dto.RoomTreeResponse;
+
+import java.util.UUID;
+
+/**
+ * Metadata-only folder/file tree of a room, as served to clients opening it.
+ */
+public interface RoomTreeService {
+
+    /**
+     * Current tree of the room with its entity tag
+     */
+    Snapshot getTree(UUID roomId);
+
+    /**
+     * A tree and a strong ETag (quoted) that changes whenever the tree does.
+     */
+    record Snapshot(RoomTreeResponse tree, String etag) {
+    }
+}
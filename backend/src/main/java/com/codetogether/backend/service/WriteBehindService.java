@@ -0,0 +1,31 @@
+package com.codetogether.backend.service;
+
+/**
+ * Persists live document edits to the files table asynchronously.
+ * Edits are coalesced per file and written in batches, so at most one flush
+ * interval of edits can be lost on a crash.
+ */
+public interface WriteBehindService {
+
+    /**
+     * Record that a live document changed. Only the latest snapshot per file is written.
+     */
+    void markDirty(String roomId, DocumentEngine.Snapshot snapshot);
+
+    /**
+     * Write a file's pending snapshot now (e.g. when its last editor leaves)
+     */
+    void flushFile(String fileId);
+
+    /**
+     * Write every pending snapshot of a room now (e.g. when the room empties)
+     */
+    void flushRoom(String roomId);
+
+    /**
+     * Write everything pending and wait for it
+     */
+    void flushAll();
+
+    int pendingCount();
+}
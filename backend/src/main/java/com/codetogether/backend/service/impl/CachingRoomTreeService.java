@@ -0,0 +1,152 @@
+package com.codetogether.backend.service.impl;
+
+import com.codetogether.backend.dto.FileSummary;
+import com.codetogether.backend.dto.RoomTreeResponse;
+import com.codetogether.backend.model.Folder;
+import com.codetogether.backend.repository.FileRepository;
+import com.codetogether.backend.repository.FolderRepository;
+import com.codetogether.backend.service.FileContentWrittenEvent;
+import com.codetogether.backend.service.RoomTreeChangedEvent;
+import com.codetogether.backend.service.RoomTreeService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * RoomTreeService building a room's tree with two queries (folders, then file
+ * metadata without content) and keeping it until a {@link RoomTreeChangedEvent}
+ * for the room commits. Write-behind flushes of live edits patch the file's size
+ * and update time in place instead. The ETag is a hash of the tree's JSON, so it
+ * survives restarts and is the same on every node.
+ *
+ * Events are node-local: with the broker relay, a tree cached on one node is not
+ * dropped by changes made through another.
+ */
+@Service
+@Slf4j
+public class CachingRoomTreeService implements RoomTreeService {
+
+    private final FolderRepository folderRepository;
+    private final FileRepository fileRepository;
+    private final ObjectWriter treeWriter;
+
+    @Value("${collaboration.tree-cache.max-rooms:1000}")
+    private int maxRooms;
+
+    private final Map<UUID, Snapshot> trees = new ConcurrentHashMap<>();
+
+    // Bumped by every invalidation; a tree built across one is not kept
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public CachingRoomTreeService(FolderRepository folderRepository, FileRepository fileRepository,
+            ObjectMapper objectMapper) {
+        this.folderRepository = folderRepository;
+        this.fileRepository = fileRepository;
+        this.treeWriter = objectMapper.writerFor(RoomTreeResponse.class);
+    }
+
+    @Override
+    public Snapshot getTree(UUID roomId) {
+        Snapshot cached = trees.get(roomId);
+        if (cached != null) {
+            return cached;
+        }
+
+        long generation = invalidations.get();
+        Snapshot built = build(roomId);
+        if (trees.size() >= maxRooms) {
+            trees.clear();
+        }
+        trees.put(roomId, built);
+        // An invalidation during the build may have removed the entry before the put
+        if (invalidations.get() != generation) {
+            trees.remove(roomId, built);
+        }
+        return built;
+    }
+
+    /**
+     * Runs after the changing transaction commits, so a rebuild sees the change.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleTreeChanged(RoomTreeChangedEvent event) {
+        invalidations.incrementAndGet();
+        if (trees.remove(event.roomId()) != null) {
+            log.debug("Dropped cached tree of room {}", event.roomId());
+        }
+    }
+
+    /**
+     * Live edits only change a file's size and update time: patch the cached tree
+     * rather than rebuilding it on every flush.
+     */
+    @EventListener
+    public void handleContentWritten(FileContentWrittenEvent event) {
+        invalidations.incrementAndGet();
+        trees.computeIfPresent(event.roomId(), (roomId, cached) -> patch(cached, event));
+    }
+
+    /**
+     * The tree with the file updated, or null to drop it if the file is not in it.
+     */
+    private Snapshot patch(Snapshot cached, FileContentWrittenEvent event) {
+        List<RoomTreeResponse.FolderNode> folders = new ArrayList<>(cached.tree().folders());
+        for (int i = 0; i < folders.size(); i++) {
+            RoomTreeResponse.FolderNode folder = folders.get(i);
+            List<RoomTreeResponse.FileNode> files = new ArrayList<>(folder.files());
+            for (int j = 0; j < files.size(); j++) {
+                RoomTreeResponse.FileNode file = files.get(j);
+                if (file.id().equals(event.fileId())) {
+                    files.set(j, new RoomTreeResponse.FileNode(file.id(), file.name(), event.size(), event.updatedAt()));
+                    folders.set(i, new RoomTreeResponse.FolderNode(folder.id(), folder.name(), folder.updatedAt(),
+                            List.copyOf(files)));
+                    RoomTreeResponse tree = new RoomTreeResponse(cached.tree().roomId(), List.copyOf(folders));
+                    return new Snapshot(tree, etag(tree));
+                }
+            }
+        }
+        return null;
+    }
+
+    private Snapshot build(UUID roomId) {
+        Map<UUID, List<RoomTreeResponse.FileNode>> filesByFolder = new HashMap<>();
+        for (FileSummary file : fileRepository.findSummariesByRoomId(roomId)) {
+            filesByFolder.computeIfAbsent(file.folderId(), k -> new ArrayList<>())
+                    .add(new RoomTreeResponse.FileNode(file.id(), file.name(), file.size(), file.updatedAt()));
+        }
+
+        List<Folder> folders = folderRepository.findAllByRoomIdOrderByCreatedAtAsc(roomId);
+        List<RoomTreeResponse.FolderNode> nodes = new ArrayList<>(folders.size());
+        for (Folder folder : folders) {
+            nodes.add(new RoomTreeResponse.FolderNode(folder.getId(), folder.getName(), folder.getUpdatedAt(),
+                    List.copyOf(filesByFolder.getOrDefault(folder.getId(), List.of()))));
+        }
+        RoomTreeResponse tree = new RoomTreeResponse(roomId, List.copyOf(nodes));
+        return new Snapshot(tree, etag(tree));
+    }
+
+    private String etag(RoomTreeResponse tree) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(treeWriter.writeValueAsBytes(tree));
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Cannot compute ETag of room tree", e);
+        }
+    }
+}
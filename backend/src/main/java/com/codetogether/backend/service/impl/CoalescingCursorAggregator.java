@@ -0,0 +1,94 @@
+package com.codetogether.backend.service.impl;
+
+import com.codetogether.backend.dto.CursorBatchMessage;
+import com.codetogether.backend.dto.CursorMessage;
+import com.codetogether.backend.service.BroadcastService;
+import com.codetogether.backend.service.CursorAggregator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CursorAggregator flushing on its own timer every
+ * {@code collaboration.cursors.flush-interval} (33ms, about 30 frames a second
+ * per room), independent of the shared @Scheduled thread.
+ */
+@Service
+@Slf4j
+public class CoalescingCursorAggregator implements CursorAggregator {
+
+    private final BroadcastService broadcastService;
+
+    @Value("${collaboration.cursors.flush-interval:PT0.033S}")
+    private Duration flushInterval;
+
+    // destination -> latest cursor per (file, user). The inner maps are only touched
+    // inside compute()/remove() on the outer map, which lock the destination's bin.
+    private final Map<String, Map<CursorKey, CursorMessage>> pending = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "cursor-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CoalescingCursorAggregator(BroadcastService broadcastService) {
+        this.broadcastService = broadcastService;
+    }
+
+    @PostConstruct
+    public void start() {
+        long period = flushInterval.toNanos();
+        flusher.scheduleAtFixedRate(this::flushSafely, period, period, TimeUnit.NANOSECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdownNow();
+    }
+
+    @Override
+    public void submit(String destination, CursorMessage cursor) {
+        CursorKey key = new CursorKey(cursor.fileId(), cursor.username());
+        pending.compute(destination, (k, cursors) -> {
+            Map<CursorKey, CursorMessage> target = cursors != null ? cursors : new LinkedHashMap<>();
+            target.put(key, cursor);
+            return target;
+        });
+    }
+
+    @Override
+    public void flush() {
+        long now = System.currentTimeMillis();
+        for (String destination : pending.keySet()) {
+            Map<CursorKey, CursorMessage> cursors = pending.remove(destination);
+            if (cursors != null && !cursors.isEmpty()) {
+                broadcastService.broadcast(destination, new CursorBatchMessage(now, new ArrayList<>(cursors.values())));
+            }
+        }
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // An exception would cancel the periodic task
+            log.error("Cursor flush failed: {}", e.getMessage());
+        }
+    }
+
+    private record CursorKey(UUID fileId, String username) {
+    }
+}
@@ -1,51 +1,82 @@
 package com.codetogether.backend.service.impl;
 
+import com.codetogether.backend.dto.EntityIdMessage;
+import com.codetogether.backend.dto.FileEditRequest;
 import com.codetogether.backend.dto.FileRequest;
+import com.codetogether.backend.dto.FileMergeConflictResponse;
 import com.codetogether.backend.dto.FileResponse;
+import com.codetogether.backend.dto.TreeEventMessage;
+import com.codetogether.backend.exception.FileMergeConflictException;
+import com.codetogether.backend.exception.PreconditionFailedException;
 import com.codetogether.backend.mapper.FileMapper;
 import com.codetogether.backend.model.File;
 import com.codetogether.backend.model.Folder;
 import com.codetogether.backend.repository.FileRepository;
 import com.codetogether.backend.repository.FolderRepository;
+import com.codetogether.backend.service.BroadcastService;
+import com.codetogether.backend.service.ContentStore;
+import com.codetogether.backend.service.DocumentEngine;
 import com.codetogether.backend.service.FileService;
+import com.codetogether.backend.service.FileVersionService;
+import com.codetogether.backend.service.RoomTreeChangedEvent;
+import com.codetogether.backend.service.WriteBehindService;
+import com.codetogether.backend.util.ContentCodec;
+import com.codetogether.backend.util.ThreeWayMerge;
 import lombok.RequiredArgsConstructor;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.InputStream;
+import java.time.Instant;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 @RequiredArgsConstructor
 @Transactional
 public class FileServiceImpl implements FileService {
 
+    // Saves that lose the race to a concurrent save or flush are merged and stored again
+    private static final int MAX_SAVE_ATTEMPTS = 3;
+
     private final FileRepository fileRepository;
+    private final ContentStore contentStore;
+    private final FileVersionService fileVersionService;
     private final FolderRepository folderRepository; // To get RoomID for broadcast
     private final FileMapper fileMapper;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final BroadcastService broadcastService;
+    private final DocumentEngine documentEngine;
+    private final WriteBehindService writeBehindService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public FileResponse createFile(FileRequest request) {
-        if (fileRepository.findByFolderIdAndName(request.folderId(), request.name()).isPresent()) {
+        if (fileRepository.existsByFolderIdAndName(request.folderId(), request.name())) {
             throw new IllegalArgumentException("File with name " + request.name() + " already exists in this folder.");
         }
 
         File file = File.builder()
                 .folderId(request.folderId())
                 .name(request.name())
-                .content(request.content())
+                .contentHash(contentStore.put(request.content()))
+                .size(request.content() != null ? request.content().length() : 0)
                 .build();
 
         file = fileRepository.save(file);
-        FileResponse response = fileMapper.toResponse(file);
+        fileVersionService.record(file.getId(), request.content(), file.getContentHash(), true);
+        FileResponse response = fileMapper.toResponse(file, request.content());
 
         broadcast(request.folderId(), "file-created", response);
         return response;
     }
 
+    /**
+     * File metadata only; content is read per file through {@link #getFile}.
+     */
     @Override
     @Transactional(readOnly = true)
     public List<FileResponse> listFilesByFolder(UUID folderId) {
@@ -57,9 +88,17 @@ public class FileServiceImpl implements FileService {
     @Override
     @Transactional(readOnly = true)
     public FileResponse getFile(UUID fileId) {
-        return fileRepository.findById(fileId)
-                .map(fileMapper::toResponse)
+        File file = fileRepository.findById(fileId)
                 .orElseThrow(() -> new RuntimeException("File not found"));
+        return fileMapper.toResponse(file, contentStore.get(file.getContentHash()).orElse(null));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public InputStream openContent(UUID fileId) {
+        File file = fileRepository.findById(fileId)
+                .orElseThrow(() -> new RuntimeException("File not found"));
+        return contentStore.open(file.getContentHash()).orElseGet(InputStream::nullInputStream);
     }
 
     @Override
@@ -67,12 +106,9 @@ public class FileServiceImpl implements FileService {
         File file = fileRepository.findById(fileId)
                 .orElseThrow(() -> new RuntimeException("File not found"));
 
-        fileRepository.findByFolderIdAndName(file.getFolderId(), newName)
-                .ifPresent(existing -> {
-                    if (!existing.getId().equals(fileId)) {
-                        throw new IllegalArgumentException("File name already taken");
-                    }
-                });
+        if (fileRepository.existsByFolderIdAndNameAndIdNot(file.getFolderId(), newName, fileId)) {
+            throw new IllegalArgumentException("File name already taken");
+        }
 
         file.setName(newName);
         file = fileRepository.save(file);
@@ -82,14 +118,28 @@ public class FileServiceImpl implements FileService {
         return response;
     }
 
+    /**
+     * An open live document is ahead of the stored content, so the merge is made against
+     * it and stored under its lock: no delta lands between the comparison and the write.
+     * Its editors get the new content on the file's edit topic, as for a full-content edit.
+     */
     @Override
-    public FileResponse updateFileContent(UUID fileId, String content) {
-        File file = fileRepository.findById(fileId)
-                .orElseThrow(() -> new RuntimeException("File not found"));
+    public FileResponse updateFileContent(UUID fileId, String content, String baseHash) {
+        String roomId = roomOf(fileId);
+        AtomicReference<Stored> stored = new AtomicReference<>();
+        Optional<DocumentEngine.Edit> live = documentEngine.updateIfOpen(fileId.toString(), snapshot -> {
+            stored.set(store(fileId, content, baseHash, snapshot.content().toString()));
+            return stored.get().content() != null ? stored.get().content() : "";
+        }, applied -> broadcastLiveEdit(roomId, applied.snapshot()));
+        if (live.isPresent()) {
+            // Supersede any older pending write of the live document
+            writeBehindService.markDirty(roomId, live.get().snapshot());
+        } else {
+            stored.set(store(fileId, content, baseHash, null));
+        }
 
-        file.setContent(content);
-        file = fileRepository.save(file);
-        FileResponse response = fileMapper.toResponse(file);
+        File file = stored.get().file();
+        FileResponse response = fileMapper.toResponse(file, stored.get().content());
 
         broadcast(file.getFolderId(), "file-updated", response);
         return response;
@@ -103,7 +153,99 @@ public class FileServiceImpl implements FileService {
         UUID folderId = file.getFolderId();
         fileRepository.delete(file);
 
-        broadcast(folderId, "file-deleted", Map.of("id", fileId));
+        broadcast(folderId, "file-deleted", new EntityIdMessage(fileId));
+    }
+
+    /**
+     * Merge a save made against {@code baseHash} if it is stale and store the result,
+     * on condition that the stored hash is still the one read. If another save or a
+     * write-behind flush changed it meanwhile, the save is merged and stored again.
+     *
+     * @param live content of the open live document, or null to merge against the stored content
+     */
+    private Stored store(UUID fileId, String content, String baseHash, String live) {
+        for (int attempt = 1; ; attempt++) {
+            File file = fileRepository.findById(fileId)
+                    .orElseThrow(() -> new RuntimeException("File not found"));
+            String previousHash = file.getContentHash();
+            String resolved = baseHash != null ? mergeIfStale(file, baseHash, content, live) : content;
+
+            // Saving what is already stored writes nothing
+            String hash = resolved != null ? ContentCodec.hash(resolved) : null;
+            if (Objects.equals(hash, previousHash)) {
+                return new Stored(file, resolved);
+            }
+            String storedHash = contentStore.put(resolved);
+            int size = resolved != null ? resolved.length() : 0;
+            Instant now = Instant.now();
+            if (fileRepository.updateContentIfUnchanged(fileId, previousHash, storedHash, size, now) == 1) {
+                // Detached by the update, so these only shape the response
+                file.setContentHash(storedHash);
+                file.setSize(size);
+                file.setUpdatedAt(now);
+                fileVersionService.record(fileId, resolved, storedHash, true);
+                return new Stored(file, resolved);
+            }
+            if (attempt == MAX_SAVE_ATTEMPTS) {
+                throw new PreconditionFailedException(
+                        "File " + fileId + " kept changing while it was saved; fetch it again");
+            }
+        }
+    }
+
+    /**
+     * The content to store for a PUT made against {@code baseHash}: as sent if the
+     * base is still current, otherwise merged with what changed since.
+     */
+    private String mergeIfStale(File file, String baseHash, String content, String live) {
+        String current = live != null ? live : contentStore.get(file.getContentHash()).orElse("");
+        String currentHash = ContentCodec.hash(current);
+        if (baseHash.equals(currentHash)) {
+            return content;
+        }
+
+        String base = (baseHash.equals(file.getContentHash())
+                ? contentStore.get(baseHash)
+                : fileVersionService.findContent(file.getId(), baseHash))
+                .orElseThrow(() -> new PreconditionFailedException(
+                        "Base version " + baseHash + " of file " + file.getId() + " is unknown; fetch the file again"));
+        ThreeWayMerge.Result merge = ThreeWayMerge.merge(base, content != null ? content : "", current);
+        if (!merge.isClean()) {
+            throw new FileMergeConflictException(new FileMergeConflictResponse(
+                    file.getId(),
+                    "\"" + currentHash + "\"",
+                    merge.merged(),
+                    merge.conflicts().stream()
+                            .map(c -> new FileMergeConflictResponse.Conflict(c.line(), c.lineCount(), c.ours(), c.theirs()))
+                            .toList()));
+        }
+        return merge.merged();
+    }
+
+    private record Stored(File file, String content) {
+    }
+
+    private String roomOf(UUID fileId) {
+        return fileRepository.findById(fileId)
+                .flatMap(file -> folderRepository.findById(file.getFolderId()))
+                .map(folder -> folder.getRoomId().toString())
+                .orElse(null);
+    }
+
+    /**
+     * Send a replaced live document to its editors. Their pending deltas were made
+     * against the cleared history, so they take this snapshot instead.
+     */
+    private void broadcastLiveEdit(String roomId, DocumentEngine.Snapshot snapshot) {
+        if (roomId == null) {
+            return;
+        }
+        FileEditRequest edit = new FileEditRequest();
+        edit.setRoomId(roomId);
+        edit.setFileId(snapshot.fileId());
+        edit.setContent(snapshot.content().toString());
+        edit.setRevision(snapshot.revision());
+        broadcastService.broadcast(String.format("/topic/room.%s.file.%s.edit", roomId, snapshot.fileId()), edit);
     }
 
     private void broadcast(UUID folderId, String type, Object payload) {
@@ -112,8 +254,9 @@ public class FileServiceImpl implements FileService {
         // For now, we fetch the folder.
         Folder folder = folderRepository.findById(folderId).orElse(null);
         if (folder != null) {
-            messagingTemplate.convertAndSend("/topic/folder/" + folder.getRoomId(),
-                    (Object) Map.of("type", type, "payload", payload));
+            eventPublisher.publishEvent(new RoomTreeChangedEvent(folder.getRoomId()));
+            broadcastService.broadcast("/topic/folder/" + folder.getRoomId(),
+                    new TreeEventMessage(type, payload));
         }
     }
 }
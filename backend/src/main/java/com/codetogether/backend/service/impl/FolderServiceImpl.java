@@ -1,18 +1,21 @@
 package com.codetogether.backend.service.impl;
 
+import com.codetogether.backend.dto.EntityIdMessage;
 import com.codetogether.backend.dto.FolderRequest;
 import com.codetogether.backend.dto.FolderResponse;
+import com.codetogether.backend.dto.TreeEventMessage;
 import com.codetogether.backend.mapper.FolderMapper;
 import com.codetogether.backend.model.Folder;
 import com.codetogether.backend.repository.FolderRepository;
+import com.codetogether.backend.service.BroadcastService;
 import com.codetogether.backend.service.FolderService;
+import com.codetogether.backend.service.RoomTreeChangedEvent;
 import lombok.RequiredArgsConstructor;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
 
 @Service
@@ -22,7 +25,8 @@ public class FolderServiceImpl implements FolderService {
 
     private final FolderRepository folderRepository;
     private final FolderMapper folderMapper;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final BroadcastService broadcastService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public FolderResponse createFolder(FolderRequest request) {
@@ -83,10 +87,11 @@ public class FolderServiceImpl implements FolderService {
         // Given simple prompt, repository.delete is fine.
         folderRepository.delete(folder);
 
-        broadcast(roomId, "folder-deleted", Map.of("id", folderId));
+        broadcast(roomId, "folder-deleted", new EntityIdMessage(folderId));
     }
 
     private void broadcast(UUID roomId, String type, Object payload) {
-        messagingTemplate.convertAndSend("/topic/folder/" + roomId, (Object) Map.of("type", type, "payload", payload));
+        eventPublisher.publishEvent(new RoomTreeChangedEvent(roomId));
+        broadcastService.broadcast("/topic/folder/" + roomId, new TreeEventMessage(type, payload));
     }
 }
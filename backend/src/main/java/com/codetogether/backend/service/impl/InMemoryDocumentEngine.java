@@ -0,0 +1,309 @@
+package com.codetogether.backend.service.impl;
+
+import com.codetogether.backend.dto.TextOperation;
+import com.codetogether.backend.exception.ResourceNotFoundException;
+import com.codetogether.backend.model.File;
+import com.codetogether.backend.repository.FileRepository;
+import com.codetogether.backend.service.ContentStore;
+import com.codetogether.backend.service.DocumentEngine;
+import com.codetogether.backend.util.OperationTransformer;
+import com.codetogether.backend.util.Rope;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * DocumentEngine keeping each open file as an immutable {@link Rope}.
+ * Edits swap in a new rope (O(log n)), so snapshots are plain references and
+ * large files are never copied per keystroke.
+ *
+ * Revisions keep growing when a document is closed and loaded again: a load
+ * starts past every revision this engine has handed out and past the clock
+ * (milliseconds x 1000), so a client still holding a revision of an earlier
+ * load is resynced instead of having its delta rebased onto unrelated history.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InMemoryDocumentEngine implements DocumentEngine {
+
+    private final FileRepository fileRepository;
+    private final ContentStore contentStore;
+
+    // Applied op lists kept per file for rebasing late deltas; older bases get a full resync
+    @Value("${collaboration.documents.max-history:500}")
+    private int maxHistory;
+
+    @Value("${collaboration.documents.idle-timeout:PT10M}")
+    private Duration idleTimeout;
+
+    private final Map<String, LiveDocument> documents = new ConcurrentHashMap<>();
+    // Highest revision of any closed document
+    private final AtomicLong closedRevisions = new AtomicLong();
+
+    @Override
+    public Snapshot open(String fileId) {
+        return document(fileId, true).snapshot();
+    }
+
+    @Override
+    public Optional<Snapshot> find(String fileId) {
+        LiveDocument document = documents.get(fileId);
+        if (document == null) {
+            return Optional.empty();
+        }
+        document.touch();
+        return Optional.of(document.snapshot());
+    }
+
+    @Override
+    public Edit applyDelta(String fileId, long baseRevision, List<TextOperation> ops, Consumer<Edit> onApplied) {
+        LiveDocument document = lockedDocument(fileId, true);
+        try {
+            Snapshot current = document.snapshot();
+            if (!OperationTransformer.isWellFormed(ops)) {
+                return new Edit(false, List.of(), current);
+            }
+            List<TextOperation> rebased = document.rebase(baseRevision, ops);
+            if (rebased == null || !OperationTransformer.isApplicable(rebased, current.content().length())) {
+                return new Edit(false, List.of(), current);
+            }
+
+            document.apply(rebased, maxHistory);
+            Edit edit = new Edit(true, rebased, document.snapshot());
+            onApplied.accept(edit);
+            return edit;
+        } finally {
+            document.lock.unlock();
+        }
+    }
+
+    @Override
+    public Edit replaceContent(String fileId, String content, Consumer<Edit> onApplied) {
+        // The content is replaced anyway, so an unopened document is not loaded first
+        LiveDocument document = lockedDocument(fileId, false);
+        try {
+            document.replace(Rope.of(content));
+            Edit edit = new Edit(true, List.of(), document.snapshot());
+            onApplied.accept(edit);
+            return edit;
+        } finally {
+            document.lock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<Edit> updateIfOpen(String fileId, Function<Snapshot, String> update, Consumer<Edit> onApplied) {
+        LiveDocument document = documents.get(fileId);
+        if (document == null) {
+            return Optional.empty();
+        }
+        document.touch();
+        document.lock.lock();
+        try {
+            if (document.closed) {
+                return Optional.empty();
+            }
+            document.replace(Rope.of(update.apply(document.snapshot())));
+            Edit edit = new Edit(true, List.of(), document.snapshot());
+            onApplied.accept(edit);
+            return Optional.of(edit);
+        } finally {
+            document.lock.unlock();
+        }
+    }
+
+    @Override
+    public void withSnapshot(String fileId, Consumer<Snapshot> action) {
+        LiveDocument document = lockedDocument(fileId, true);
+        try {
+            action.accept(document.snapshot());
+        } finally {
+            document.lock.unlock();
+        }
+    }
+
+    @Override
+    public void close(String fileId) {
+        LiveDocument document = documents.get(fileId);
+        if (document == null) {
+            return;
+        }
+        document.lock.lock();
+        try {
+            if (retire(document)) {
+                log.debug("Closed document {}", fileId);
+            }
+        } finally {
+            document.lock.unlock();
+        }
+    }
+
+    @Override
+    public int openDocumentCount() {
+        return documents.size();
+    }
+
+    @Scheduled(fixedDelayString = "${collaboration.documents.eviction-interval:PT1M}")
+    public void evictIdleDocuments() {
+        long cutoff = System.currentTimeMillis() - idleTimeout.toMillis();
+        for (LiveDocument document : documents.values()) {
+            if (document.lastAccess >= cutoff || !document.lock.tryLock()) {
+                continue;
+            }
+            try {
+                // Callers touch a document before locking it, so one in use is not idle here
+                if (document.lastAccess < cutoff && retire(document)) {
+                    log.debug("Evicting idle document {} at revision {}", document.fileId, document.snapshot().revision());
+                }
+            } finally {
+                document.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * The document, locked. One closed or evicted meanwhile is replaced.
+     *
+     * @param load whether an unopened document is loaded from the database or starts empty
+     */
+    private LiveDocument lockedDocument(String fileId, boolean load) {
+        while (true) {
+            LiveDocument document = document(fileId, load);
+            document.lock.lock();
+            if (!document.closed) {
+                return document;
+            }
+            document.lock.unlock();
+        }
+    }
+
+    private LiveDocument document(String fileId, boolean load) {
+        LiveDocument document = documents.get(fileId);
+        if (document == null) {
+            // Load outside the map so a slow query does not block other files
+            Rope content = load ? Rope.of(loadContent(fileId)) : Rope.EMPTY;
+            document = documents.computeIfAbsent(fileId, k -> new LiveDocument(fileId, content, firstRevision()));
+        }
+        document.touch();
+        return document;
+    }
+
+    /**
+     * Remove a document from the map. Must hold its lock; false if already removed.
+     */
+    private boolean retire(LiveDocument document) {
+        if (document.closed) {
+            return false;
+        }
+        document.closed = true;
+        // Before removing it, so a load that finds the map empty starts past it
+        closedRevisions.accumulateAndGet(document.snapshot().revision(), Math::max);
+        documents.remove(document.fileId, document);
+        return true;
+    }
+
+    private long firstRevision() {
+        return Math.max(closedRevisions.get() + 1, System.currentTimeMillis() * 1000);
+    }
+
+    /**
+     * Content of a file to open. Fails rather than opening a missing row or blob as an
+     * empty document, which the first edit would then persist over the real content.
+     */
+    private String loadContent(String fileId) {
+        UUID id;
+        try {
+            id = UUID.fromString(fileId);
+        } catch (IllegalArgumentException e) {
+            throw new ResourceNotFoundException("Invalid file id " + fileId);
+        }
+        File file = fileRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("File not found: " + fileId));
+        if (file.getContentHash() == null) {
+            // Created without content
+            return "";
+        }
+        return contentStore.get(file.getContentHash())
+                .orElseThrow(() -> new ResourceNotFoundException("Content of file " + fileId + " not found"));
+    }
+
+    /**
+     * One open file. Edits are serialised on {@code lock} (not a monitor, so a
+     * virtual thread blocked in a listener does not pin its carrier); the current
+     * snapshot is published through a volatile field so readers never lock.
+     */
+    private static final class LiveDocument {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final String fileId;
+        private volatile Snapshot current;
+        private volatile long lastAccess = System.currentTimeMillis();
+        // Set under lock once removed from the map; holders retry with a fresh load
+        private boolean closed;
+        // Op lists applied for revisions (revision - history.size(), revision]
+        private final Deque<List<TextOperation>> history = new ArrayDeque<>();
+
+        private LiveDocument(String fileId, Rope content, long revision) {
+            this.fileId = fileId;
+            this.current = new Snapshot(fileId, revision, content);
+        }
+
+        private void touch() {
+            lastAccess = System.currentTimeMillis();
+        }
+
+        private Snapshot snapshot() {
+            return current;
+        }
+
+        /**
+         * Transform ops made against {@code baseRevision} onto the current revision.
+         * Returns null when the base is unknown or already trimmed from history.
+         */
+        private List<TextOperation> rebase(long baseRevision, List<TextOperation> ops) {
+            long revision = current.revision();
+            if (baseRevision > revision || revision - baseRevision > history.size()) {
+                return null;
+            }
+            long skip = history.size() - (revision - baseRevision);
+            Iterator<List<TextOperation>> applied = history.iterator();
+            for (long i = 0; i < skip; i++) {
+                applied.next();
+            }
+            List<TextOperation> rebased = ops;
+            while (applied.hasNext()) {
+                rebased = OperationTransformer.transform(rebased, applied.next());
+            }
+            return rebased;
+        }
+
+        private void apply(List<TextOperation> ops, int maxHistory) {
+            current = new Snapshot(fileId, current.revision() + 1, OperationTransformer.apply(current.content(), ops));
+            history.addLast(ops);
+            if (history.size() > maxHistory) {
+                history.removeFirst();
+            }
+        }
+
+        private void replace(Rope newContent) {
+            current = new Snapshot(fileId, current.revision() + 1, newContent);
+            history.clear();
+        }
+    }
+}
@@ -2,67 +2,83 @@ package com.codetogether.backend.service.impl;
 
 import com.codetogether.backend.dto.RoomPresence;
 import com.codetogether.backend.dto.UserPresence;
+import com.codetogether.backend.service.PresenceExpiredEvent;
 import com.codetogether.backend.service.PresenceService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * In-memory implementation of PresenceService using ConcurrentHashMap.
- * This implementation is thread-safe and can be easily replaced with Redis
- * later.
- * 
- * To switch to Redis:
- * 1. Create RedisPresenceService implementing PresenceService
- * 2. Use Redis Sets for storing online users per room
- * 3. Use Redis Hashes for storing user metadata (joinedAt, lastSeen)
- * 4. Replace @Service annotation or use @Profile to switch implementations
+ * Only sees the sessions of this JVM; use {@link RedisPresenceService} when
+ * running more than one node.
  */
 @Service
+@ConditionalOnProperty(name = "collaboration.presence.store", havingValue = "memory", matchIfMissing = true)
 public class InMemoryPresenceService implements PresenceService {
 
     private static final Logger logger = LoggerFactory.getLogger(InMemoryPresenceService.class);
 
-    // Map<RoomId, Map<Username, UserPresence>>
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${collaboration.presence.ttl:PT30S}")
+    private Duration ttl;
+
+    // Map<RoomId, Map<UserId, UserPresence>>
     private final Map<UUID, Map<String, UserPresence>> roomPresence = new ConcurrentHashMap<>();
 
+    public InMemoryPresenceService(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
     @Override
-    public void userJoinedRoom(UUID roomId, String username) {
-        logger.debug("User {} joined room {}", username, roomId);
+    public boolean join(UUID roomId, String userId, String name) {
+        logger.debug("User {} joined room {}", userId, roomId);
 
-        roomPresence.computeIfAbsent(roomId, k -> new ConcurrentHashMap<>())
-                .put(username, new UserPresence(username, LocalDateTime.now(), LocalDateTime.now()));
+        LocalDateTime now = LocalDateTime.now();
+        boolean[] added = new boolean[1];
+        // compute() keeps join and the empty-room removal in leave() atomic per room
+        roomPresence.compute(roomId, (k, users) -> {
+            Map<String, UserPresence> target = users != null ? users : new ConcurrentHashMap<>();
+            UserPresence previous = target.get(userId);
+            added[0] = previous == null;
+            target.put(userId, new UserPresence(userId, name, added[0] ? now : previous.joinedAt(), now));
+            return target;
+        });
+        return added[0];
     }
 
     @Override
-    public void userLeftRoom(UUID roomId, String username) {
-        logger.debug("User {} left room {}", username, roomId);
-
-        Map<String, UserPresence> users = roomPresence.get(roomId);
-        if (users != null) {
-            users.remove(username);
+    public Optional<UserPresence> leave(UUID roomId, String userId) {
+        logger.debug("User {} left room {}", userId, roomId);
 
+        UserPresence[] removed = new UserPresence[1];
+        roomPresence.computeIfPresent(roomId, (k, users) -> {
+            removed[0] = users.remove(userId);
             // Clean up empty rooms
-            if (users.isEmpty()) {
-                roomPresence.remove(roomId);
-            }
-        }
+            return users.isEmpty() ? null : users;
+        });
+        return Optional.ofNullable(removed[0]);
     }
 
     @Override
-    public void updateLastSeen(UUID roomId, String username) {
+    public boolean updateLastSeen(UUID roomId, String userId) {
         Map<String, UserPresence> users = roomPresence.get(roomId);
-        if (users != null && users.containsKey(username)) {
-            UserPresence current = users.get(username);
-            users.put(username, new UserPresence(
-                    username,
-                    current.joinedAt(),
-                    LocalDateTime.now()));
+        if (users == null) {
+            return false;
         }
+        LocalDateTime now = LocalDateTime.now();
+        return users.computeIfPresent(userId,
+                (k, current) -> new UserPresence(userId, current.username(), current.joinedAt(), now)) != null;
     }
 
     @Override
@@ -71,16 +87,21 @@ public class InMemoryPresenceService implements PresenceService {
         return users != null ? new HashSet<>(users.values()) : Collections.emptySet();
     }
 
+    @Override
+    public int countOnline(UUID roomId) {
+        Map<String, UserPresence> users = roomPresence.get(roomId);
+        return users != null ? users.size() : 0;
+    }
+
     @Override
     public RoomPresence getRoomPresence(UUID roomId) {
-        Set<UserPresence> onlineUsers = getOnlineUsers(roomId);
-        return new RoomPresence(roomId, onlineUsers, onlineUsers.size());
+        return new RoomPresence(roomId, getOnlineUsers(roomId), countOnline(roomId));
     }
 
     @Override
-    public boolean isUserOnline(UUID roomId, String username) {
+    public boolean isUserOnline(UUID roomId, String userId) {
         Map<String, UserPresence> users = roomPresence.get(roomId);
-        return users != null && users.containsKey(username);
+        return users != null && users.containsKey(userId);
     }
 
     @Override
@@ -88,4 +109,19 @@ public class InMemoryPresenceService implements PresenceService {
         logger.debug("Clearing presence for room {}", roomId);
         roomPresence.remove(roomId);
     }
+
+    @Scheduled(fixedDelayString = "${collaboration.presence.sweep-interval:PT5S}")
+    public void expireStale() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(ttl);
+        for (Map.Entry<UUID, Map<String, UserPresence>> room : roomPresence.entrySet()) {
+            for (UserPresence presence : room.getValue().values()) {
+                if (presence.lastSeen().isBefore(cutoff)
+                        && room.getValue().remove(presence.userId(), presence)) {
+                    logger.info("Presence of {} in room {} expired", presence.userId(), room.getKey());
+                    eventPublisher.publishEvent(new PresenceExpiredEvent(room.getKey(), presence));
+                }
+            }
+            roomPresence.computeIfPresent(room.getKey(), (k, users) -> users.isEmpty() ? null : users);
+        }
+    }
 }
@@ -0,0 +1,148 @@
+package com.codetogether.backend.service.impl;
+
+import com.codetogether.backend.service.ContentStore;
+import com.codetogether.backend.util.ContentCodec;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * ContentStore on the content_blobs table. Saving content another file already
+ * has only refreshes that blob's touched_at; new blobs are deflated before
+ * they are sent. Callers skip saves that leave a file's hash unchanged, so those
+ * write nothing here. Statements join the caller's transaction.
+ *
+ * Blobs are not reference counted: the sweep deletes those no file and no
+ * history keyframe points to once they are older than {@code collaboration.blobs.gc-grace}. A save touches
+ * its blob before referencing it, which both row-locks it and keeps it out of
+ * a concurrent sweep.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class JdbcContentStore implements ContentStore {
+
+    private static final String TOUCH_SQL = "UPDATE content_blobs SET touched_at = ? WHERE hash = ?";
+    private static final String INSERT_SQL = "INSERT INTO content_blobs (hash, encoding, data, size, touched_at) "
+            + "VALUES (?, ?, ?, ?, ?) ON CONFLICT (hash) DO UPDATE SET touched_at = EXCLUDED.touched_at";
+    private static final String SELECT_SQL = "SELECT encoding, data FROM content_blobs WHERE hash = ?";
+    private static final String DELETE_UNREFERENCED_SQL = "DELETE FROM content_blobs WHERE hash IN ("
+            + "SELECT b.hash FROM content_blobs b WHERE b.touched_at < ? "
+            + "AND NOT EXISTS (SELECT 1 FROM files f WHERE f.content_hash = b.hash) "
+            + "AND NOT EXISTS (SELECT 1 FROM file_versions v WHERE v.keyframe AND v.content_hash = b.hash) LIMIT ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${collaboration.blobs.gc-grace:PT1H}")
+    private Duration gcGrace;
+
+    @Value("${collaboration.blobs.gc-batch-size:1000}")
+    private int gcBatchSize;
+
+    @Override
+    public String put(String content) {
+        return putAll(Collections.singletonList(content)).get(0);
+    }
+
+    @Override
+    public List<String> putAll(List<String> contents) {
+        List<String> hashes = new ArrayList<>(contents.size());
+        Map<String, String> distinct = new LinkedHashMap<>();
+        for (String content : contents) {
+            String hash = content != null ? ContentCodec.hash(content) : null;
+            hashes.add(hash);
+            if (hash != null) {
+                distinct.putIfAbsent(hash, content);
+            }
+        }
+        if (distinct.isEmpty()) {
+            return hashes;
+        }
+
+        Timestamp now = Timestamp.from(Instant.now());
+        List<String> candidates = new ArrayList<>(distinct.keySet());
+        List<Object[]> touchArgs = new ArrayList<>(candidates.size());
+        for (String hash : candidates) {
+            touchArgs.add(new Object[] { now, hash });
+        }
+        int[] touched = jdbcTemplate.batchUpdate(TOUCH_SQL, touchArgs);
+
+        // Only content the store does not have yet is compressed and sent
+        List<Object[]> insertArgs = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            if (touched[i] == 0) {
+                ContentCodec.Encoded encoded = ContentCodec.encode(distinct.get(candidates.get(i)));
+                insertArgs.add(new Object[] { encoded.hash(), encoded.encoding(), encoded.data(), encoded.size(), now });
+            }
+        }
+        if (!insertArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, insertArgs);
+        }
+        return hashes;
+    }
+
+    @Override
+    public Optional<String> get(String hash) {
+        if (hash == null) {
+            return Optional.empty();
+        }
+        return jdbcTemplate.query(SELECT_SQL,
+                (rs, rowNum) -> ContentCodec.decode(rs.getString("encoding"), rs.getBytes("data")), hash)
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * The driver reads a bytea value whole, so only inflating is streamed.
+     */
+    @Override
+    public Optional<InputStream> open(String hash) {
+        if (hash == null) {
+            return Optional.empty();
+        }
+        return jdbcTemplate.query(SELECT_SQL,
+                (rs, rowNum) -> ContentCodec.open(rs.getString("encoding"), rs.getBytes("data")), hash)
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    public int deleteUnreferenced() {
+        Timestamp cutoff = Timestamp.from(Instant.now().minus(gcGrace));
+        int total = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(DELETE_UNREFERENCED_SQL, cutoff, gcBatchSize);
+            total += deleted;
+        } while (deleted == gcBatchSize);
+        return total;
+    }
+
+    @Scheduled(fixedDelayString = "${collaboration.blobs.gc-interval:PT1H}")
+    public void collectGarbage() {
+        try {
+            int deleted = deleteUnreferenced();
+            if (deleted > 0) {
+                log.info("Deleted {} unreferenced content blob(s)", deleted);
+            }
+        } catch (DataIntegrityViolationException e) {
+            // A file started referencing a blob mid-sweep; it is skipped next time
+            log.debug("Content blob sweep stopped early: {}", e.getMessage());
+        }
+    }
+}
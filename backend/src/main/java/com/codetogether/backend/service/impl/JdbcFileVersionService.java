@@ -0,0 +1,294 @@
+package com.codetogether.backend.service.impl;
+
+import com.codetogether.backend.dto.FileVersionResponse;
+import com.codetogether.backend.exception.ResourceNotFoundException;
+import com.codetogether.backend.service.ContentStore;
+import com.codetogether.backend.service.FileVersionService;
+import com.codetogether.backend.util.ContentCodec;
+import com.codetogether.backend.util.Rope;
+import com.codetogether.backend.util.TextDiff;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * FileVersionService on the file_versions table. Keyframes point at a content
+ * blob (deduplicated and compressed by the {@link ContentStore}); deltas hold
+ * one replaced region from {@link TextDiff}, its text encoded like a blob.
+ *
+ * Version numbers are allocated with the file row locked, so a REST save and a
+ * write-behind flush of the same file cannot both take the next one.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class JdbcFileVersionService implements FileVersionService {
+
+    // Serialises recorders of one file; no row means the file was deleted meanwhile
+    private static final String LOCK_FILE_SQL = "SELECT id FROM files WHERE id = ? FOR UPDATE";
+    private static final String SELECT_LATEST_SQL = "SELECT version, content_hash, created_at "
+            + "FROM file_versions WHERE file_id = ? ORDER BY version DESC LIMIT 1";
+    private static final String INSERT_KEYFRAME_SQL = "INSERT INTO file_versions "
+            + "(file_id, version, content_hash, keyframe, size, created_at) VALUES (?, ?, ?, true, ?, ?)";
+    private static final String INSERT_DELTA_SQL = "INSERT INTO file_versions (file_id, version, content_hash, "
+            + "keyframe, delta_position, delta_length, encoding, data, size, created_at) "
+            + "VALUES (?, ?, ?, false, ?, ?, ?, ?, ?, ?)";
+    private static final String LIST_SQL = "SELECT version, size, created_at FROM file_versions "
+            + "WHERE file_id = ? ORDER BY version DESC";
+    // The version and every delta after its nearest keyframe, oldest first
+    private static final String CHAIN_SQL = "SELECT version, content_hash, keyframe, delta_position, delta_length, "
+            + "encoding, data, size, created_at FROM file_versions WHERE file_id = ? AND version <= ? "
+            + "AND version >= (SELECT MAX(version) FROM file_versions WHERE file_id = ? AND version <= ? AND keyframe) "
+            + "ORDER BY version";
+    private static final String FIND_BY_HASH_SQL = "SELECT MAX(version) FROM file_versions "
+            + "WHERE file_id = ? AND content_hash = ?";
+    private static final String TRIM_CANDIDATES_SQL = "SELECT file_id FROM file_versions "
+            + "GROUP BY file_id HAVING COUNT(*) > ? OR MIN(created_at) < ?";
+    private static final String MAX_VERSION_SQL = "SELECT MAX(version) FROM file_versions WHERE file_id = ?";
+    private static final String FIRST_RECENT_SQL = "SELECT MIN(version) FROM file_versions "
+            + "WHERE file_id = ? AND created_at >= ?";
+    private static final String MAKE_KEYFRAME_SQL = "UPDATE file_versions SET keyframe = true, content_hash = ?, "
+            + "delta_position = NULL, delta_length = NULL, encoding = NULL, data = NULL "
+            + "WHERE file_id = ? AND version = ?";
+    private static final String DELETE_BEFORE_SQL = "DELETE FROM file_versions WHERE file_id = ? AND version < ?";
+
+    private static final RowMapper<VersionRow> VERSION_ROW = (rs, rowNum) -> new VersionRow(
+            rs.getInt("version"),
+            rs.getString("content_hash"),
+            rs.getBoolean("keyframe"),
+            rs.getInt("delta_position"),
+            rs.getInt("delta_length"),
+            rs.getString("encoding"),
+            rs.getBytes("data"),
+            rs.getInt("size"),
+            rs.getTimestamp("created_at").toInstant());
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ContentStore contentStore;
+
+    // At most this many deltas are applied to rebuild a version
+    @Value("${collaboration.history.keyframe-interval:20}")
+    private int keyframeInterval;
+
+    @Value("${collaboration.history.min-interval:PT1M}")
+    private Duration minInterval;
+
+    @Value("${collaboration.history.max-versions:500}")
+    private int maxVersions;
+
+    @Value("${collaboration.history.max-age:P30D}")
+    private Duration maxAge;
+
+    // fileId -> when this node last recorded a live-edit version, to skip the lookup while throttled
+    private final Map<UUID, Instant> lastRecorded = new ConcurrentHashMap<>();
+
+    // Versions are written apart from the content transaction that triggered them
+    private TransactionTemplate recordTransaction;
+
+    @PostConstruct
+    public void init() {
+        recordTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        recordTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    public void record(UUID fileId, String content, String contentHash, boolean explicitSave) {
+        if (content == null || contentHash == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            recordIsolated(fileId, content, contentHash, explicitSave);
+            return;
+        }
+        // The caller's transaction still holds its row locks, and a rollback must not leave a version behind
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recordIsolated(fileId, content, contentHash, explicitSave);
+            }
+        });
+    }
+
+    private void recordIsolated(UUID fileId, String content, String contentHash, boolean explicitSave) {
+        try {
+            recordTransaction.executeWithoutResult(status -> insertVersion(fileId, content, contentHash, explicitSave));
+        } catch (RuntimeException e) {
+            log.error("Recording a version of file {} failed: {}", fileId, e.getMessage());
+        }
+    }
+
+    private void insertVersion(UUID fileId, String content, String contentHash, boolean explicitSave) {
+        Instant now = Instant.now();
+        Instant recent = lastRecorded.get(fileId);
+        if (!explicitSave && recent != null && recent.isAfter(now.minus(minInterval))) {
+            return;
+        }
+        if (jdbcTemplate.queryForList(LOCK_FILE_SQL, UUID.class, fileId).isEmpty()) {
+            return;
+        }
+
+        Optional<Latest> latest = jdbcTemplate.query(SELECT_LATEST_SQL, (rs, rowNum) -> new Latest(
+                rs.getInt("version"),
+                rs.getString("content_hash"),
+                rs.getTimestamp("created_at").toInstant()), fileId).stream().findFirst();
+        if (latest.isPresent()) {
+            if (latest.get().contentHash().equals(contentHash)) {
+                return;
+            }
+            if (!explicitSave && latest.get().createdAt().isAfter(now.minus(minInterval))) {
+                lastRecorded.put(fileId, latest.get().createdAt());
+                return;
+            }
+        }
+
+        int version = latest.map(l -> l.version() + 1).orElse(1);
+        Timestamp createdAt = Timestamp.from(now);
+        String base = latest.isEmpty() || (version - 1) % keyframeInterval == 0
+                ? null
+                : baseContent(fileId, latest.get());
+        if (base == null) {
+            jdbcTemplate.update(INSERT_KEYFRAME_SQL, fileId, version, contentHash, content.length(), createdAt);
+        } else {
+            TextDiff.Replace delta = TextDiff.between(base, content);
+            ContentCodec.Encoded text = ContentCodec.encode(delta.text());
+            jdbcTemplate.update(INSERT_DELTA_SQL, fileId, version, contentHash, delta.position(), delta.length(),
+                    text.encoding(), text.data(), content.length(), createdAt);
+        }
+        lastRecorded.put(fileId, now);
+    }
+
+    @Override
+    public List<FileVersionResponse> listVersions(UUID fileId) {
+        return jdbcTemplate.query(LIST_SQL, (rs, rowNum) -> new FileVersionResponse(
+                fileId,
+                rs.getInt("version"),
+                rs.getInt("size"),
+                rs.getTimestamp("created_at").toInstant(),
+                null), fileId);
+    }
+
+    @Override
+    public FileVersionResponse getVersion(UUID fileId, int version) {
+        List<VersionRow> chain = chain(fileId, version);
+        if (chain.isEmpty() || chain.get(chain.size() - 1).version() != version) {
+            throw new ResourceNotFoundException("Version " + version + " of file " + fileId + " not found");
+        }
+        VersionRow target = chain.get(chain.size() - 1);
+        return new FileVersionResponse(fileId, version, target.size(), target.createdAt(), rebuild(fileId, chain));
+    }
+
+    @Override
+    public Optional<String> findContent(UUID fileId, String contentHash) {
+        Integer version = jdbcTemplate.queryForObject(FIND_BY_HASH_SQL, Integer.class, fileId, contentHash);
+        return version != null ? Optional.of(getVersion(fileId, version).content()) : Optional.empty();
+    }
+
+    @Override
+    public int compact() {
+        Timestamp cutoff = Timestamp.from(Instant.now().minus(maxAge));
+        List<UUID> files = jdbcTemplate.queryForList(TRIM_CANDIDATES_SQL, UUID.class, maxVersions, cutoff);
+        int deleted = 0;
+        for (UUID fileId : files) {
+            try {
+                Integer trimmed = transactionTemplate.execute(status -> trim(fileId, cutoff));
+                deleted += trimmed != null ? trimmed : 0;
+            } catch (RuntimeException e) {
+                log.error("Compacting the history of file {} failed: {}", fileId, e.getMessage());
+            }
+        }
+        return deleted;
+    }
+
+    @Scheduled(fixedDelayString = "${collaboration.history.compaction-interval:PT1H}")
+    public void compactHistory() {
+        Instant stale = Instant.now().minus(minInterval);
+        lastRecorded.values().removeIf(recorded -> recorded.isBefore(stale));
+        int deleted = compact();
+        if (deleted > 0) {
+            log.info("Compacted file history, {} version(s) deleted", deleted);
+        }
+    }
+
+    private int trim(UUID fileId, Timestamp cutoff) {
+        jdbcTemplate.queryForList(LOCK_FILE_SQL, UUID.class, fileId);
+        Integer newest = jdbcTemplate.queryForObject(MAX_VERSION_SQL, Integer.class, fileId);
+        if (newest == null) {
+            return 0;
+        }
+        // Keep versions that are both among the newest max-versions and younger than max-age, and always the latest
+        Integer firstRecent = jdbcTemplate.queryForObject(FIRST_RECENT_SQL, Integer.class, fileId, cutoff);
+        int keepFrom = Math.min(newest, Math.max(newest - maxVersions + 1, firstRecent != null ? firstRecent : newest));
+
+        List<VersionRow> chain = chain(fileId, keepFrom);
+        if (chain.isEmpty()) {
+            return 0;
+        }
+        VersionRow oldestKept = chain.get(chain.size() - 1);
+        if (!oldestKept.keyframe()) {
+            String hash = contentStore.put(rebuild(fileId, chain));
+            jdbcTemplate.update(MAKE_KEYFRAME_SQL, hash, fileId, oldestKept.version());
+        }
+        return jdbcTemplate.update(DELETE_BEFORE_SQL, fileId, oldestKept.version());
+    }
+
+    private List<VersionRow> chain(UUID fileId, int version) {
+        return jdbcTemplate.query(CHAIN_SQL, VERSION_ROW, fileId, version, fileId, version);
+    }
+
+    private String rebuild(UUID fileId, List<VersionRow> chain) {
+        VersionRow keyframe = chain.get(0);
+        Rope content = Rope.of(contentStore.get(keyframe.contentHash())
+                .orElseThrow(() -> new IllegalStateException(
+                        "Keyframe " + keyframe.version() + " of file " + fileId + " has no content blob")));
+        for (VersionRow delta : chain.subList(1, chain.size())) {
+            String text = ContentCodec.decode(delta.encoding(), delta.data());
+            content = new TextDiff.Replace(delta.deltaPosition(), delta.deltaLength(), text).applyTo(content);
+        }
+        return content.toString();
+    }
+
+    /**
+     * Content of the latest version, to diff the next one against. Usually still a
+     * stored blob; otherwise rebuilt from its chain. Null means write a keyframe,
+     * also when the chain cannot be rebuilt, so a broken chain does not stop history.
+     */
+    private String baseContent(UUID fileId, Latest latest) {
+        Optional<String> stored = contentStore.get(latest.contentHash());
+        if (stored.isPresent()) {
+            return stored.get();
+        }
+        List<VersionRow> chain = chain(fileId, latest.version());
+        try {
+            return chain.isEmpty() ? null : rebuild(fileId, chain);
+        } catch (IllegalStateException e) {
+            log.warn("Writing a keyframe for file {}: {}", fileId, e.getMessage());
+            return null;
+        }
+    }
+
+    private record Latest(int version, String contentHash, Instant createdAt) {
+    }
+
+    private record VersionRow(int version, String contentHash, boolean keyframe, int deltaPosition,
+            int deltaLength, String encoding, byte[] data, int size, Instant createdAt) {
+    }
+}
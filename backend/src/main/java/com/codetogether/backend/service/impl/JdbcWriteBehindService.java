@@ -0,0 +1,241 @@
+package com.codetogether.backend.service.impl;
+
+import com.codetogether.backend.service.ContentStore;
+import com.codetogether.backend.service.DocumentEngine;
+import com.codetogether.backend.service.FileContentWrittenEvent;
+import com.codetogether.backend.service.FileVersionService;
+import com.codetogether.backend.service.WriteBehindService;
+import com.codetogether.backend.util.ContentCodec;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * WriteBehindService writing dirty documents with JDBC batch updates.
+ * Flushes run every {@code collaboration.persistence.flush-interval}, or early once
+ * {@code batch-size} files are pending, one transaction per batch. Documents whose
+ * stored hash already matches are skipped without touching the content store.
+ */
+@Service
+@Slf4j
+public class JdbcWriteBehindService implements WriteBehindService {
+
+    // Files whose stored content already matches the snapshot are left alone
+    private static final String UPDATE_CONTENT_SQL = "UPDATE files SET content_hash = ?, size = ?, updated_at = ? "
+            + "WHERE id = ? AND content_hash IS DISTINCT FROM ?";
+    private static final String SELECT_HASHES_SQL = "SELECT id, content_hash FROM files WHERE id IN (%s)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ContentStore contentStore;
+    private final FileVersionService fileVersionService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${collaboration.persistence.batch-size:100}")
+    private int batchSize;
+
+    // fileId -> latest unsaved snapshot; a newer edit simply replaces the entry
+    private final Map<String, PendingWrite> pending = new ConcurrentHashMap<>();
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean earlyFlushScheduled = new AtomicBoolean();
+    private final ExecutorService flushExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "write-behind-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public JdbcWriteBehindService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            ContentStore contentStore, FileVersionService fileVersionService,
+            ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.contentStore = contentStore;
+        this.fileVersionService = fileVersionService;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public void markDirty(String roomId, DocumentEngine.Snapshot snapshot) {
+        UUID id;
+        try {
+            id = UUID.fromString(snapshot.fileId());
+        } catch (IllegalArgumentException e) {
+            log.warn("Not persisting live document with invalid file id {}", snapshot.fileId());
+            return;
+        }
+        // Callers mark snapshots after releasing the document lock, so an older one may come last
+        pending.merge(snapshot.fileId(), new PendingWrite(roomId, id, snapshot),
+                (queued, marked) -> marked.snapshot().revision() >= queued.snapshot().revision() ? marked : queued);
+
+        if (pending.size() >= batchSize && earlyFlushScheduled.compareAndSet(false, true)) {
+            flushExecutor.execute(() -> {
+                earlyFlushScheduled.set(false);
+                flush(write -> true);
+            });
+        }
+    }
+
+    @Override
+    public void flushFile(String fileId) {
+        flushExecutor.execute(() -> flush(write -> write.snapshot().fileId().equals(fileId)));
+    }
+
+    @Override
+    public void flushRoom(String roomId) {
+        flushExecutor.execute(() -> flush(write -> roomId.equals(write.roomId())));
+    }
+
+    @Override
+    public void flushAll() {
+        flush(write -> true);
+    }
+
+    @Override
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    @Scheduled(fixedDelayString = "${collaboration.persistence.flush-interval:PT2S}")
+    public void flushPending() {
+        flush(write -> true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushExecutor.shutdown();
+        try {
+            flushExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushAll();
+        log.info("Write-behind flusher stopped, {} document(s) left unsaved", pending.size());
+    }
+
+    private void flush(Predicate<PendingWrite> filter) {
+        flushLock.lock();
+        try {
+            List<PendingWrite> batch = new ArrayList<>(batchSize);
+            for (PendingWrite write : pending.values()) {
+                if (filter.test(write)) {
+                    batch.add(write);
+                    if (batch.size() == batchSize) {
+                        writeBatch(batch);
+                        batch.clear();
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void writeBatch(List<PendingWrite> batch) {
+        // Stored to the microsecond, so trees patched with it match ones read back
+        Instant writtenAt = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        Timestamp now = Timestamp.from(writtenAt);
+        List<String> contents = new ArrayList<>(batch.size());
+        for (PendingWrite write : batch) {
+            contents.add(write.snapshot().content().toString());
+        }
+
+        List<String> hashes = new ArrayList<>(batch.size());
+        for (String content : contents) {
+            hashes.add(ContentCodec.hash(content));
+        }
+        int[] updated = new int[batch.size()];
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // Unchanged documents (e.g. edits undone) write nothing, not even a blob touch
+                Map<UUID, String> stored = storedHashes(batch);
+                List<Integer> changed = new ArrayList<>(batch.size());
+                for (int i = 0; i < batch.size(); i++) {
+                    if (!Objects.equals(stored.get(batch.get(i).id()), hashes.get(i))) {
+                        changed.add(i);
+                    }
+                }
+                if (changed.isEmpty()) {
+                    return;
+                }
+                contentStore.putAll(changed.stream().map(contents::get).toList());
+                List<Object[]> args = new ArrayList<>(changed.size());
+                for (int i : changed) {
+                    args.add(new Object[] { hashes.get(i), contents.get(i).length(), now, batch.get(i).id(), hashes.get(i) });
+                }
+                int[] counts = jdbcTemplate.batchUpdate(UPDATE_CONTENT_SQL, args);
+                for (int j = 0; j < changed.size(); j++) {
+                    updated[changed.get(j)] = counts[j];
+                }
+            });
+        } catch (RuntimeException e) {
+            // Entries stay pending and are retried on the next flush
+            log.error("Write-behind flush of {} file(s) failed: {}", batch.size(), e.getMessage());
+            return;
+        }
+
+        // After the content commit and one file at a time: a history failure only loses that version
+        for (int i = 0; i < batch.size(); i++) {
+            if (updated[i] != 0) {
+                fileVersionService.record(batch.get(i).id(), contents.get(i), hashes.get(i), false);
+            }
+        }
+
+        // Only clear entries that were not replaced by a newer edit while writing
+        for (PendingWrite write : batch) {
+            pending.remove(write.snapshot().fileId(), write);
+        }
+        // File sizes and update times in cached room trees are now out of date
+        for (int i = 0; i < batch.size(); i++) {
+            PendingWrite write = batch.get(i);
+            if (updated[i] == 0 || write.roomId() == null) {
+                continue;
+            }
+            try {
+                eventPublisher.publishEvent(new FileContentWrittenEvent(UUID.fromString(write.roomId()), write.id(),
+                        contents.get(i).length(), writtenAt));
+            } catch (IllegalArgumentException e) {
+                log.debug("Not updating tree of invalid room id {}", write.roomId());
+            }
+        }
+        log.debug("Flushed {} live document(s) to the content store", batch.size());
+    }
+
+    private Map<UUID, String> storedHashes(List<PendingWrite> batch) {
+        Map<UUID, String> hashes = new HashMap<>();
+        String sql = SELECT_HASHES_SQL.formatted(String.join(", ", Collections.nCopies(batch.size(), "?")));
+        jdbcTemplate.query(sql, rs -> {
+            hashes.put(rs.getObject("id", UUID.class), rs.getString("content_hash"));
+        }, batch.stream().map(PendingWrite::id).toArray());
+        return hashes;
+    }
+
+    private record PendingWrite(String roomId, UUID id, DocumentEngine.Snapshot snapshot) {
+    }
+}
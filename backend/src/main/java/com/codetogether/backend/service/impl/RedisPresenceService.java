@@ -0,0 +1,229 @@
+package com.codetogether.backend.service.impl;
+
+import com.codetogether.backend.dto.RoomPresence;
+import com.codetogether.backend.dto.UserPresence;
+import com.codetogether.backend.service.PresenceExpiredEvent;
+import com.codetogether.backend.service.PresenceService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * PresenceService shared by all nodes through Redis (any server speaking the
+ * Redis protocol, e.g. Valkey or a local redis-server in development).
+ *
+ * Per room a sorted set maps userId to its last heartbeat (epoch millis), so
+ * counting is ZCARD and expiry is a range query, and a hash keeps the display
+ * name and join time. Every mutation is a Lua script, so two nodes sweeping the
+ * same room never both report an expiry.
+ */
+@Service
+@ConditionalOnProperty(name = "collaboration.presence.store", havingValue = "redis")
+@RequiredArgsConstructor
+@Slf4j
+public class RedisPresenceService implements PresenceService {
+
+    private static final String ROOMS_KEY = "presence:rooms";
+
+    // KEYS: seen, users, rooms  ARGV: userId, now, meta, roomId
+    private static final RedisScript<Long> JOIN = RedisScript.of("""
+            local added = redis.call('ZADD', KEYS[1], ARGV[2], ARGV[1])
+            if added == 1 then
+              redis.call('HSET', KEYS[2], ARGV[1], ARGV[3])
+            else
+              redis.call('HSETNX', KEYS[2], ARGV[1], ARGV[3])
+            end
+            redis.call('SADD', KEYS[3], ARGV[4])
+            return added
+            """, Long.class);
+
+    // KEYS: seen, users, rooms  ARGV: userId, roomId
+    private static final RedisScript<String> LEAVE = RedisScript.of("""
+            local meta = redis.call('HGET', KEYS[2], ARGV[1])
+            local removed = redis.call('ZREM', KEYS[1], ARGV[1])
+            redis.call('HDEL', KEYS[2], ARGV[1])
+            if redis.call('ZCARD', KEYS[1]) == 0 then
+              redis.call('SREM', KEYS[3], ARGV[2])
+            end
+            if removed == 1 then
+              return meta or ''
+            end
+            return false
+            """, String.class);
+
+    // KEYS: seen, rooms  ARGV: userId, now, roomId
+    private static final RedisScript<Long> HEARTBEAT = RedisScript.of("""
+            if redis.call('ZSCORE', KEYS[1], ARGV[1]) then
+              redis.call('ZADD', KEYS[1], ARGV[2], ARGV[1])
+              redis.call('SADD', KEYS[2], ARGV[3])
+              return 1
+            end
+            return 0
+            """, Long.class);
+
+    // KEYS: seen, users, rooms  ARGV: cutoff, roomId  -> [userId, meta, userId, meta, ...]
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> EXPIRE = RedisScript.of("""
+            local expired = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1])
+            local result = {}
+            for _, id in ipairs(expired) do
+              redis.call('ZREM', KEYS[1], id)
+              table.insert(result, id)
+              table.insert(result, redis.call('HGET', KEYS[2], id) or '')
+              redis.call('HDEL', KEYS[2], id)
+            end
+            if redis.call('ZCARD', KEYS[1]) == 0 then
+              redis.call('SREM', KEYS[3], ARGV[2])
+            end
+            return result
+            """, List.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${collaboration.presence.ttl:PT30S}")
+    private Duration ttl;
+
+    @Override
+    public boolean join(UUID roomId, String userId, String name) {
+        long now = System.currentTimeMillis();
+        Long added = redisTemplate.execute(JOIN, List.of(seenKey(roomId), usersKey(roomId), ROOMS_KEY),
+                userId, String.valueOf(now), now + ":" + name, roomId.toString());
+        log.debug("User {} joined room {}", userId, roomId);
+        return added != null && added == 1;
+    }
+
+    @Override
+    public Optional<UserPresence> leave(UUID roomId, String userId) {
+        String meta = redisTemplate.execute(LEAVE, List.of(seenKey(roomId), usersKey(roomId), ROOMS_KEY),
+                userId, roomId.toString());
+        log.debug("User {} left room {}", userId, roomId);
+        return meta == null ? Optional.empty() : Optional.of(decode(userId, meta, System.currentTimeMillis()));
+    }
+
+    @Override
+    public boolean updateLastSeen(UUID roomId, String userId) {
+        Long updated = redisTemplate.execute(HEARTBEAT, List.of(seenKey(roomId), ROOMS_KEY),
+                userId, String.valueOf(System.currentTimeMillis()), roomId.toString());
+        return updated != null && updated == 1;
+    }
+
+    @Override
+    public Set<UserPresence> getOnlineUsers(UUID roomId) {
+        Set<ZSetOperations.TypedTuple<String>> seen = redisTemplate.opsForZSet().rangeWithScores(seenKey(roomId), 0, -1);
+        if (seen == null || seen.isEmpty()) {
+            return Set.of();
+        }
+        Map<Object, Object> meta = redisTemplate.opsForHash().entries(usersKey(roomId));
+        Set<UserPresence> users = new HashSet<>(seen.size() * 2);
+        for (ZSetOperations.TypedTuple<String> entry : seen) {
+            Object value = meta.get(entry.getValue());
+            long lastSeen = entry.getScore() != null ? entry.getScore().longValue() : 0L;
+            users.add(decode(entry.getValue(), value != null ? value.toString() : "", lastSeen));
+        }
+        return users;
+    }
+
+    @Override
+    public int countOnline(UUID roomId) {
+        Long count = redisTemplate.opsForZSet().zCard(seenKey(roomId));
+        return count != null ? count.intValue() : 0;
+    }
+
+    @Override
+    public RoomPresence getRoomPresence(UUID roomId) {
+        return new RoomPresence(roomId, getOnlineUsers(roomId), countOnline(roomId));
+    }
+
+    @Override
+    public boolean isUserOnline(UUID roomId, String userId) {
+        return redisTemplate.opsForZSet().score(seenKey(roomId), userId) != null;
+    }
+
+    @Override
+    public void clearRoom(UUID roomId) {
+        log.debug("Clearing presence for room {}", roomId);
+        redisTemplate.delete(List.of(seenKey(roomId), usersKey(roomId)));
+        redisTemplate.opsForSet().remove(ROOMS_KEY, roomId.toString());
+    }
+
+    /**
+     * Runs on every node; users whose node stopped heartbeating are removed by
+     * whichever node gets there first.
+     */
+    @Scheduled(fixedDelayString = "${collaboration.presence.sweep-interval:PT5S}")
+    public void expireStale() {
+        Set<String> rooms = redisTemplate.opsForSet().members(ROOMS_KEY);
+        if (rooms == null) {
+            return;
+        }
+        String cutoff = String.valueOf(System.currentTimeMillis() - ttl.toMillis());
+        for (String room : rooms) {
+            UUID roomId;
+            try {
+                roomId = UUID.fromString(room);
+            } catch (IllegalArgumentException e) {
+                redisTemplate.opsForSet().remove(ROOMS_KEY, room);
+                continue;
+            }
+            List<?> expired = redisTemplate.execute(EXPIRE, List.of(seenKey(roomId), usersKey(roomId), ROOMS_KEY),
+                    cutoff, room);
+            if (expired == null) {
+                continue;
+            }
+            for (int i = 0; i + 1 < expired.size(); i += 2) {
+                UserPresence presence = decode((String) expired.get(i), (String) expired.get(i + 1), 0L);
+                log.info("Presence of {} in room {} expired", presence.userId(), roomId);
+                eventPublisher.publishEvent(new PresenceExpiredEvent(roomId, presence));
+            }
+        }
+    }
+
+    private static String seenKey(UUID roomId) {
+        return "presence:room:" + roomId + ":seen";
+    }
+
+    private static String usersKey(UUID roomId) {
+        return "presence:room:" + roomId + ":users";
+    }
+
+    /**
+     * Hash values are "{joinedAtMillis}:{name}".
+     */
+    private static UserPresence decode(String userId, String meta, long lastSeenMillis) {
+        int colon = meta.indexOf(':');
+        long joinedAt = 0L;
+        String name = userId;
+        if (colon > 0) {
+            try {
+                joinedAt = Long.parseLong(meta, 0, colon, 10);
+                name = meta.substring(colon + 1);
+            } catch (NumberFormatException e) {
+                log.warn("Malformed presence entry for {}: {}", userId, meta);
+            }
+        }
+        return new UserPresence(userId, name, toLocal(joinedAt), toLocal(lastSeenMillis));
+    }
+
+    private static LocalDateTime toLocal(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,66 @@
+package com.codetogether.backend.service.impl;
+
+import com.codetogether.backend.config.ClusterProperties;
+import com.codetogether.backend.dto.RoomRouteResponse;
+import com.codetogether.backend.service.RoomRoutingService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * RoomRoutingService using rendezvous (highest random weight) hashing.
+ * Adding or removing a node only moves the rooms that node wins or owned.
+ */
+@Service
+@RequiredArgsConstructor
+public class RendezvousRoomRoutingService implements RoomRoutingService {
+
+    private final ClusterProperties clusterProperties;
+
+    @Override
+    public String ownerOf(UUID roomId) {
+        Map<String, String> nodes = clusterProperties.getNodes();
+        if (nodes.isEmpty()) {
+            return clusterProperties.getNodeId();
+        }
+
+        String owner = null;
+        long best = Long.MIN_VALUE;
+        for (String nodeId : nodes.keySet()) {
+            long weight = weight(roomId, nodeId);
+            if (owner == null || weight > best) {
+                owner = nodeId;
+                best = weight;
+            }
+        }
+        return owner;
+    }
+
+    @Override
+    public boolean isLocal(UUID roomId) {
+        return ownerOf(roomId).equals(clusterProperties.getNodeId());
+    }
+
+    @Override
+    public RoomRouteResponse route(UUID roomId) {
+        String owner = ownerOf(roomId);
+        return new RoomRouteResponse(
+                roomId,
+                owner,
+                clusterProperties.getNodes().get(owner),
+                owner.equals(clusterProperties.getNodeId()));
+    }
+
+    private static long weight(UUID roomId, String nodeId) {
+        return mix(roomId.getMostSignificantBits() ^ mix(roomId.getLeastSignificantBits() ^ nodeId.hashCode()));
+    }
+
+    // SplitMix64 finaliser: spreads structured inputs (UUID halves, string hashes) over 64 bits
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,221 @@
+package com.codetogether.backend.service.impl;
+
+import com.codetogether.backend.service.RoomReplayService;
+import com.codetogether.backend.service.RoomRoutingService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * RoomReplayService keeping, per room on this node, the latest broadcasts up to
+ * {@code collaboration.replay.capacity} entries, {@code max-bytes} of payload and
+ * {@code max-age}. Payload arrays are the ones already sent, not copies.
+ *
+ * A room's numbering starts from the clock (milliseconds x 1000), so numbers keep
+ * growing across restarts and room moves between nodes: a client holding a number
+ * from before is told to reload rather than being replayed the wrong messages.
+ * Rooms owned by another node are not numbered here: their counts would not match.
+ */
+@Service
+@Slf4j
+public class RingBufferRoomReplayService implements RoomReplayService {
+
+    private static final String DOT_TOPIC_PREFIX = "/topic/room.";
+    private static final String SLASH_TOPIC_PREFIX = "/topic/room/";
+    private static final String FOLDER_TOPIC_PREFIX = "/topic/folder/";
+
+    @Value("${collaboration.replay.capacity:1000}")
+    private int capacity;
+
+    @Value("${collaboration.replay.max-bytes:1048576}")
+    private long maxBytes;
+
+    @Value("${collaboration.replay.max-age:PT2M}")
+    private Duration maxAge;
+
+    private final RoomRoutingService roomRoutingService;
+    private final Map<String, RoomLog> rooms = new ConcurrentHashMap<>();
+    private final Counter replayed;
+    private final Counter reloads;
+
+    public RingBufferRoomReplayService(RoomRoutingService roomRoutingService, MeterRegistry meterRegistry) {
+        this.roomRoutingService = roomRoutingService;
+        this.replayed = Counter.builder("websocket.replay.resumes")
+                .description("Reconnected sessions resuming a room")
+                .tag("result", "replayed")
+                .register(meterRegistry);
+        this.reloads = Counter.builder("websocket.replay.resumes")
+                .description("Reconnected sessions resuming a room")
+                .tag("result", "reload")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void publish(String destination, byte[] payload, LongConsumer send) {
+        String roomId = roomOf(destination);
+        if (roomId == null || !ownsRoom(roomId)) {
+            send.accept(NO_SEQUENCE);
+            return;
+        }
+        RoomLog room = lockedRoom(roomId);
+        try {
+            send.accept(room.append(destination, payload, capacity, maxBytes));
+        } finally {
+            room.lock.unlock();
+        }
+    }
+
+    @Override
+    public void replay(String roomId, long lastSequence, Map<String, Long> topicSequences, Consumer<Replay> action) {
+        RoomLog room = lockedRoom(roomId);
+        try {
+            room.trim(System.currentTimeMillis() - maxAge.toMillis());
+            Replay replay = room.since(lastSequence, topicSequences);
+            (replay.complete() ? replayed : reloads).increment();
+            log.debug("Resuming room {} after {}: {} messages, complete={}",
+                    roomId, lastSequence, replay.entries().size(), replay.complete());
+            action.accept(replay);
+        } finally {
+            room.lock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${collaboration.replay.sweep-interval:PT1M}")
+    public void dropIdleRooms() {
+        long cutoff = System.currentTimeMillis() - maxAge.toMillis();
+        rooms.forEach((roomId, room) -> {
+            if (room.lock.tryLock()) {
+                try {
+                    if (room.lastAppend < cutoff) {
+                        room.closed = true;
+                        rooms.remove(roomId, room);
+                    }
+                } finally {
+                    room.lock.unlock();
+                }
+            }
+        });
+    }
+
+    /**
+     * The room's log, locked. A log dropped as idle meanwhile is replaced.
+     */
+    private RoomLog lockedRoom(String roomId) {
+        while (true) {
+            RoomLog room = rooms.computeIfAbsent(roomId, k -> new RoomLog());
+            room.lock.lock();
+            if (!room.closed) {
+                return room;
+            }
+            room.lock.unlock();
+        }
+    }
+
+    private boolean ownsRoom(String roomId) {
+        try {
+            return roomRoutingService.isLocal(UUID.fromString(roomId));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Room of a replayed topic: /topic/room.{roomId}.*, /topic/room/{roomId}/*
+     * except cursors, /topic/folder/{roomId}. Null for anything else.
+     */
+    private static String roomOf(String destination) {
+        if (destination.startsWith(DOT_TOPIC_PREFIX)) {
+            int end = destination.indexOf('.', DOT_TOPIC_PREFIX.length());
+            return end > 0 ? destination.substring(DOT_TOPIC_PREFIX.length(), end) : null;
+        }
+        if (destination.startsWith(SLASH_TOPIC_PREFIX) && !destination.endsWith("/cursor")) {
+            int end = destination.indexOf('/', SLASH_TOPIC_PREFIX.length());
+            return end > 0 ? destination.substring(SLASH_TOPIC_PREFIX.length(), end) : null;
+        }
+        if (destination.startsWith(FOLDER_TOPIC_PREFIX)) {
+            return destination.substring(FOLDER_TOPIC_PREFIX.length());
+        }
+        return null;
+    }
+
+    /**
+     * One room's numbering and its latest broadcasts, oldest first with consecutive
+     * numbers. Guarded by {@code lock}.
+     */
+    private static final class RoomLog {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Deque<Stamped> entries = new ArrayDeque<>();
+        // Numbers of this log are above it; older ones are from a dropped log or another node
+        private final long start = System.currentTimeMillis() * 1000;
+        private long sequence = start;
+        // destination -> its latest number no longer kept
+        private final Map<String, Long> evicted = new HashMap<>();
+        private long bytes;
+        private long lastAppend = System.currentTimeMillis();
+        private boolean closed;
+
+        private long append(String destination, byte[] payload, int capacity, long maxBytes) {
+            lastAppend = System.currentTimeMillis();
+            entries.addLast(new Stamped(new Entry(++sequence, destination, payload), lastAppend));
+            bytes += payload.length;
+            while (entries.size() > capacity || (bytes > maxBytes && entries.size() > 1)) {
+                evictOldest();
+            }
+            return sequence;
+        }
+
+        private void trim(long cutoff) {
+            while (!entries.isEmpty() && entries.peekFirst().createdAt() < cutoff) {
+                evictOldest();
+            }
+        }
+
+        private void evictOldest() {
+            Entry oldest = entries.removeFirst().entry();
+            bytes -= oldest.payload().length;
+            evicted.put(oldest.destination(), oldest.sequence());
+        }
+
+        /**
+         * Kept broadcasts after the client's last number of their topic. Incomplete
+         * if one of those was already evicted, or the client's numbers are not ours.
+         */
+        private Replay since(long lastSequence, Map<String, Long> topicSequences) {
+            if (lastSequence <= start || lastSequence > sequence) {
+                return new Replay(false, sequence, List.of());
+            }
+            for (Map.Entry<String, Long> gone : evicted.entrySet()) {
+                if (gone.getValue() > topicSequences.getOrDefault(gone.getKey(), lastSequence)) {
+                    return new Replay(false, sequence, List.of());
+                }
+            }
+            List<Entry> missed = new ArrayList<>();
+            for (Stamped stamped : entries) {
+                Entry entry = stamped.entry();
+                if (entry.sequence() > topicSequences.getOrDefault(entry.destination(), lastSequence)) {
+                    missed.add(entry);
+                }
+            }
+            return new Replay(true, sequence, missed);
+        }
+    }
+
+    private record Stamped(Entry entry, long createdAt) {
+    }
+}
@@ -0,0 +1,74 @@
+package com.codetogether.backend.service.impl;
+
+import com.codetogether.backend.service.BroadcastService;
+import com.codetogether.backend.service.RoomReplayService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * BroadcastService writing each payload with a pre-built {@link ObjectWriter}
+ * and publishing the bytes with {@code send}, which skips message conversion.
+ * Counts the bytes it encodes as {@code websocket.broadcast.bytes{stage=encoded}};
+ * the outbound channel counts what is written to sessions as {@code stage=written}.
+ * Room topic broadcasts are numbered and kept by the {@link RoomReplayService}.
+ */
+@Service
+@Slf4j
+public class SerializeOnceBroadcastService implements BroadcastService {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ObjectMapper objectMapper;
+    private final RoomReplayService roomReplayService;
+    private final Counter encodedBytes;
+
+    private final Map<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    public SerializeOnceBroadcastService(SimpMessagingTemplate messagingTemplate, ObjectMapper objectMapper,
+            RoomReplayService roomReplayService, MeterRegistry meterRegistry) {
+        this.messagingTemplate = messagingTemplate;
+        this.objectMapper = objectMapper;
+        this.roomReplayService = roomReplayService;
+        this.encodedBytes = Counter.builder("websocket.broadcast.bytes")
+                .description("JSON payload bytes of topic broadcasts")
+                .baseUnit("bytes")
+                .tag("stage", "encoded")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void broadcast(String destination, Object payload) {
+        byte[] json;
+        try {
+            json = writers.computeIfAbsent(payload.getClass(), objectMapper::writerFor).writeValueAsBytes(payload);
+        } catch (JsonProcessingException e) {
+            log.error("Cannot serialize {} for {}", payload.getClass().getSimpleName(), destination, e);
+            return;
+        }
+        encodedBytes.increment(json.length);
+
+        roomReplayService.publish(destination, json, sequence -> {
+            SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+            // Not a native header, so it is not written into the STOMP frame
+            headers.setHeader(BROADCAST_HEADER, Boolean.TRUE);
+            if (sequence != RoomReplayService.NO_SEQUENCE) {
+                headers.setNativeHeader(RoomReplayService.SEQUENCE_HEADER, Long.toString(sequence));
+            }
+            headers.setLeaveMutable(true);
+            messagingTemplate.send(destination, MessageBuilder.createMessage(json, headers.getMessageHeaders()));
+        });
+    }
+}
@@ -0,0 +1,98 @@
+package com.codetogether.backend.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.Deflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Addressing and encoding of stored file content. A blob is named by the hex
+ * SHA-256 of its UTF-8 bytes and kept deflated when that makes it smaller.
+ */
+public final class ContentCodec {
+
+    public static final String IDENTITY = "identity";
+    public static final String DEFLATE = "deflate";
+
+    // Shorter content rarely deflates to less than it is
+    private static final int MIN_DEFLATE_BYTES = 256;
+
+    private ContentCodec() {
+    }
+
+    /**
+     * @param size uncompressed length in bytes
+     */
+    public record Encoded(String hash, String encoding, byte[] data, int size) {
+    }
+
+    public static String hash(String content) {
+        return hash(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Encoded encode(String content) {
+        byte[] raw = content.getBytes(StandardCharsets.UTF_8);
+        String hash = hash(raw);
+        if (raw.length >= MIN_DEFLATE_BYTES) {
+            byte[] deflated = deflate(raw);
+            if (deflated.length < raw.length) {
+                return new Encoded(hash, DEFLATE, deflated, raw.length);
+            }
+        }
+        return new Encoded(hash, IDENTITY, raw, raw.length);
+    }
+
+    public static String decode(String encoding, byte[] data) {
+        try (InputStream in = open(encoding, data)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt " + encoding + " content blob", e);
+        }
+    }
+
+    /**
+     * The UTF-8 content of a stored blob, inflated as it is read.
+     */
+    public static InputStream open(String encoding, byte[] data) {
+        InputStream in = new ByteArrayInputStream(data);
+        return switch (encoding) {
+            case IDENTITY -> in;
+            case DEFLATE -> new InflaterInputStream(in);
+            default -> throw new IllegalStateException("Unknown content encoding " + encoding);
+        };
+    }
+
+    private static String hash(byte[] raw) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(raw));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * zlib-wrapped deflate, as read by {@link InflaterInputStream} and browsers' DecompressionStream("deflate").
+     */
+    public static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+}
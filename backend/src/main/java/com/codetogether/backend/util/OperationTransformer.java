@@ -0,0 +1,157 @@
+package com.codetogether.backend.util;
+
+import com.codetogether.backend.dto.TextOperation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Operational transformation for positional insert/delete operations.
+ * Transforming an op list against ops that were already applied to the same
+ * base rewrites its positions so it can be applied on top of them.
+ * Ties (two inserts at the same position) are won by the already applied side,
+ * so clients must use the same rule when rebasing their pending ops.
+ */
+public final class OperationTransformer {
+
+    private OperationTransformer() {
+    }
+
+    /**
+     * Rebase {@code ops} so they apply after {@code applied}.
+     * Both lists must have been produced against the same document state.
+     */
+    public static List<TextOperation> transform(List<TextOperation> ops, List<TextOperation> applied) {
+        return transformPair(ops, applied, false).left();
+    }
+
+    /**
+     * Check that ops are complete enough to transform: every op has a type and a
+     * non-negative position, inserts carry text and deletes a non-negative length.
+     * Client ops must pass this before {@link #transform}, which assumes it.
+     */
+    public static boolean isWellFormed(List<TextOperation> ops) {
+        if (ops == null) {
+            return false;
+        }
+        for (TextOperation op : ops) {
+            if (op == null || op.type() == null || op.position() < 0) {
+                return false;
+            }
+            if (op.isInsert() ? op.text() == null : op.length() < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check that every op is well formed and stays within the document bounds when applied in order.
+     */
+    public static boolean isApplicable(List<TextOperation> ops, int documentLength) {
+        if (!isWellFormed(ops)) {
+            return false;
+        }
+        long length = documentLength;
+        for (TextOperation op : ops) {
+            if (op.isInsert()) {
+                if (op.position() > length) {
+                    return false;
+                }
+                length += op.text().length();
+            } else {
+                if ((long) op.position() + op.length() > length) {
+                    return false;
+                }
+                length -= op.length();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Apply ops in order, returning the new rope. The input rope is left untouched.
+     */
+    public static Rope apply(Rope content, List<TextOperation> ops) {
+        Rope result = content;
+        for (TextOperation op : ops) {
+            result = op.isInsert()
+                    ? result.insert(op.position(), op.text())
+                    : result.delete(op.position(), op.position() + op.length());
+        }
+        return result;
+    }
+
+    private static Pair transformPair(List<TextOperation> a, List<TextOperation> b, boolean aWins) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return new Pair(a, b);
+        }
+        if (a.size() == 1 && b.size() == 1) {
+            return new Pair(
+                    transformOne(a.get(0), b.get(0), aWins),
+                    transformOne(b.get(0), a.get(0), !aWins));
+        }
+        if (a.size() > 1) {
+            Pair head = transformPair(a.subList(0, 1), b, aWins);
+            Pair tail = transformPair(a.subList(1, a.size()), head.right(), aWins);
+            return new Pair(concat(head.left(), tail.left()), tail.right());
+        }
+        Pair head = transformPair(a, b.subList(0, 1), aWins);
+        Pair tail = transformPair(head.left(), b.subList(1, b.size()), aWins);
+        return new Pair(tail.left(), concat(head.right(), tail.right()));
+    }
+
+    /**
+     * Transform a single op against another op applied to the same base.
+     * Returns zero ops (fully absorbed delete), one op, or two ops (delete split by an insert).
+     */
+    private static List<TextOperation> transformOne(TextOperation op, TextOperation against, boolean opWins) {
+        int p = op.position();
+        int q = against.position();
+        int m = against.span();
+
+        if (op.isInsert()) {
+            if (against.isInsert()) {
+                boolean shift = q < p || (q == p && !opWins);
+                return List.of(shift ? TextOperation.insert(p + m, op.text()) : op);
+            }
+            if (p <= q) {
+                return List.of(op);
+            }
+            return List.of(TextOperation.insert(p >= q + m ? p - m : q, op.text()));
+        }
+
+        int n = op.length();
+        if (against.isInsert()) {
+            if (q <= p) {
+                return List.of(TextOperation.delete(p + m, n));
+            }
+            if (q >= p + n) {
+                return List.of(op);
+            }
+            // Insert landed inside the deleted range: keep it and delete around it
+            int before = q - p;
+            return List.of(TextOperation.delete(p, before), TextOperation.delete(p + m, n - before));
+        }
+
+        if (p + n <= q) {
+            return List.of(op);
+        }
+        if (p >= q + m) {
+            return List.of(TextOperation.delete(p - m, n));
+        }
+        int overlap = Math.min(p + n, q + m) - Math.max(p, q);
+        int remaining = n - overlap;
+        return remaining == 0 ? List.of() : List.of(TextOperation.delete(Math.min(p, q), remaining));
+    }
+
+    private static List<TextOperation> concat(List<TextOperation> first, List<TextOperation> second) {
+        List<TextOperation> result = new ArrayList<>(first.size() + second.size());
+        result.addAll(first);
+        result.addAll(second);
+        return result;
+    }
+
+    private record Pair(List<TextOperation> left, List<TextOperation> right) {
+    }
+}
@@ -0,0 +1,231 @@
+package com.codetogether.backend.util;
+
+/**
+ * Immutable rope: text stored as a height-balanced tree of bounded leaves.
+ * Insert and delete are O(log n) and return a new rope sharing all untouched
+ * nodes with the old one, so a reference to a rope is a free snapshot.
+ */
+public abstract sealed class Rope permits Rope.Leaf, Rope.Branch {
+
+    // Leaves are split at this size and small neighbours are merged up to it
+    static final int MAX_LEAF = 1024;
+
+    public static final Rope EMPTY = new Leaf("");
+
+    public static Rope of(CharSequence text) {
+        return text.isEmpty() ? EMPTY : build(text, 0, text.length());
+    }
+
+    public abstract int length();
+
+    public abstract char charAt(int index);
+
+    abstract int height();
+
+    public boolean isEmpty() {
+        return length() == 0;
+    }
+
+    public Rope insert(int index, CharSequence text) {
+        checkIndex(index, length());
+        if (text.isEmpty()) {
+            return this;
+        }
+        Rope[] parts = split(this, index);
+        return concat(concat(parts[0], of(text)), parts[1]);
+    }
+
+    public Rope delete(int start, int end) {
+        checkIndex(start, end);
+        checkIndex(end, length());
+        if (start == end) {
+            return this;
+        }
+        Rope[] head = split(this, start);
+        Rope[] tail = split(head[1], end - start);
+        return concat(head[0], tail[1]);
+    }
+
+    public String substring(int start, int end) {
+        checkIndex(start, end);
+        checkIndex(end, length());
+        StringBuilder sb = new StringBuilder(end - start);
+        appendRange(sb, start, end);
+        return sb.toString();
+    }
+
+    /**
+     * Append the whole text to {@code sb} without building intermediate strings.
+     */
+    public void appendTo(StringBuilder sb) {
+        appendRange(sb, 0, length());
+    }
+
+    abstract void appendRange(StringBuilder sb, int start, int end);
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(length());
+        appendTo(sb);
+        return sb.toString();
+    }
+
+    public static Rope concat(Rope left, Rope right) {
+        if (left.isEmpty()) {
+            return right;
+        }
+        if (right.isEmpty()) {
+            return left;
+        }
+        if (left instanceof Leaf l && right instanceof Leaf r && l.length() + r.length() <= MAX_LEAF) {
+            return new Leaf(l.text + r.text);
+        }
+        int diff = left.height() - right.height();
+        if (diff > 1) {
+            return joinRight((Branch) left, right);
+        }
+        if (diff < -1) {
+            return joinLeft(left, (Branch) right);
+        }
+        return new Branch(left, right);
+    }
+
+    private static Rope joinRight(Branch left, Rope right) {
+        Rope joined = left.right.height() <= right.height() + 1
+                ? concat(left.right, right)
+                : joinRight((Branch) left.right, right);
+        if (joined.height() <= left.left.height() + 1) {
+            return new Branch(left.left, joined);
+        }
+        if (joined instanceof Branch b && b.left.height() > b.right.height()) {
+            joined = rotateRight(b);
+        }
+        return rotateLeft(new Branch(left.left, joined));
+    }
+
+    private static Rope joinLeft(Rope left, Branch right) {
+        Rope joined = right.left.height() <= left.height() + 1
+                ? concat(left, right.left)
+                : joinLeft(left, (Branch) right.left);
+        if (joined.height() <= right.right.height() + 1) {
+            return new Branch(joined, right.right);
+        }
+        if (joined instanceof Branch b && b.right.height() > b.left.height()) {
+            joined = rotateLeft(b);
+        }
+        return rotateRight(new Branch(joined, right.right));
+    }
+
+    private static Rope rotateLeft(Branch node) {
+        Branch pivot = (Branch) node.right;
+        return new Branch(new Branch(node.left, pivot.left), pivot.right);
+    }
+
+    private static Rope rotateRight(Branch node) {
+        Branch pivot = (Branch) node.left;
+        return new Branch(pivot.left, new Branch(pivot.right, node.right));
+    }
+
+    private static Rope[] split(Rope rope, int index) {
+        if (index == 0) {
+            return new Rope[] { EMPTY, rope };
+        }
+        if (index == rope.length()) {
+            return new Rope[] { rope, EMPTY };
+        }
+        if (rope instanceof Leaf leaf) {
+            return new Rope[] { new Leaf(leaf.text.substring(0, index)), new Leaf(leaf.text.substring(index)) };
+        }
+        Branch branch = (Branch) rope;
+        int leftLength = branch.left.length();
+        if (index < leftLength) {
+            Rope[] parts = split(branch.left, index);
+            return new Rope[] { parts[0], concat(parts[1], branch.right) };
+        }
+        Rope[] parts = split(branch.right, index - leftLength);
+        return new Rope[] { concat(branch.left, parts[0]), parts[1] };
+    }
+
+    private static Rope build(CharSequence text, int start, int end) {
+        if (end - start <= MAX_LEAF) {
+            return new Leaf(text.subSequence(start, end).toString());
+        }
+        int mid = start + (end - start) / 2;
+        return new Branch(build(text, start, mid), build(text, mid, end));
+    }
+
+    private static void checkIndex(int index, int limit) {
+        if (index < 0 || index > limit) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + limit);
+        }
+    }
+
+    static final class Leaf extends Rope {
+        private final String text;
+
+        private Leaf(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return text.charAt(index);
+        }
+
+        @Override
+        int height() {
+            return 1;
+        }
+
+        @Override
+        void appendRange(StringBuilder sb, int start, int end) {
+            sb.append(text, start, end);
+        }
+    }
+
+    static final class Branch extends Rope {
+        private final Rope left;
+        private final Rope right;
+        private final int length;
+        private final int height;
+
+        private Branch(Rope left, Rope right) {
+            this.left = left;
+            this.right = right;
+            this.length = left.length() + right.length();
+            this.height = Math.max(left.height(), right.height()) + 1;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            int leftLength = left.length();
+            return index < leftLength ? left.charAt(index) : right.charAt(index - leftLength);
+        }
+
+        @Override
+        int height() {
+            return height;
+        }
+
+        @Override
+        void appendRange(StringBuilder sb, int start, int end) {
+            int leftLength = left.length();
+            if (start < leftLength) {
+                left.appendRange(sb, start, Math.min(end, leftLength));
+            }
+            if (end > leftLength) {
+                right.appendRange(sb, Math.max(start - leftLength, 0), end - leftLength);
+            }
+        }
+    }
+}
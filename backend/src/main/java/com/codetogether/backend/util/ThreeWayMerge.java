@@ -0,0 +1,271 @@
+package com.codetogether.backend.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Line-based three-way merge (diff3). Both sides are diffed against the common
+ * base with Myers' algorithm; changes to different base lines are combined,
+ * identical changes are taken once, and overlapping or touching changes that
+ * differ are conflicts. Conflicted regions keep {@code theirs} in the result.
+ */
+public final class ThreeWayMerge {
+
+    // Beyond this many changed lines a side is treated as one replaced block
+    private static final int MAX_EDIT_DISTANCE = 1000;
+
+    private static final byte DIAGONAL = 0;
+    private static final byte DELETE = 1;
+    private static final byte INSERT = 2;
+
+    private ThreeWayMerge() {
+    }
+
+    /**
+     * A region both sides changed differently.
+     *
+     * @param line      first line of the region in the merged text (0-based)
+     * @param lineCount lines the region spans in the merged text, i.e. in {@code theirs}
+     */
+    public record Conflict(int line, int lineCount, String ours, String theirs) {
+    }
+
+    public record Result(String merged, List<Conflict> conflicts) {
+
+        public boolean isClean() {
+            return conflicts.isEmpty();
+        }
+    }
+
+    public static Result merge(String base, String ours, String theirs) {
+        if (ours.equals(theirs) || base.equals(theirs)) {
+            return new Result(ours, List.of());
+        }
+        if (base.equals(ours)) {
+            return new Result(theirs, List.of());
+        }
+
+        List<String> baseLines = lines(base);
+        List<Hunk> ourHunks = diff(baseLines, lines(ours));
+        List<Hunk> theirHunks = diff(baseLines, lines(theirs));
+
+        StringBuilder merged = new StringBuilder(Math.max(ours.length(), theirs.length()));
+        List<Conflict> conflicts = new ArrayList<>();
+        int mergedLine = 0;
+        int position = 0;
+        int i = 0;
+        int j = 0;
+        while (i < ourHunks.size() || j < theirHunks.size()) {
+            // Group every hunk, from either side, that overlaps or touches the first one
+            boolean oursFirst = j == theirHunks.size()
+                    || (i < ourHunks.size() && ourHunks.get(i).baseStart() <= theirHunks.get(j).baseStart());
+            int start = oursFirst ? ourHunks.get(i).baseStart() : theirHunks.get(j).baseStart();
+            int end = start;
+            int ourFrom = i;
+            int theirFrom = j;
+            boolean grown = true;
+            while (grown) {
+                grown = false;
+                if (i < ourHunks.size() && ourHunks.get(i).baseStart() <= end) {
+                    end = Math.max(end, ourHunks.get(i++).baseEnd());
+                    grown = true;
+                }
+                if (j < theirHunks.size() && theirHunks.get(j).baseStart() <= end) {
+                    end = Math.max(end, theirHunks.get(j++).baseEnd());
+                    grown = true;
+                }
+            }
+
+            for (String line : baseLines.subList(position, start)) {
+                merged.append(line);
+                mergedLine++;
+            }
+            List<String> ourRegion = apply(baseLines, start, end, ourHunks.subList(ourFrom, i));
+            List<String> theirRegion = apply(baseLines, start, end, theirHunks.subList(theirFrom, j));
+            boolean onlyOurs = theirFrom == j;
+            boolean onlyTheirs = ourFrom == i;
+            List<String> chosen = onlyOurs || (!onlyTheirs && ourRegion.equals(theirRegion)) ? ourRegion : theirRegion;
+            if (!onlyOurs && !onlyTheirs && !ourRegion.equals(theirRegion)) {
+                conflicts.add(new Conflict(mergedLine, theirRegion.size(), String.join("", ourRegion),
+                        String.join("", theirRegion)));
+            }
+            for (String line : chosen) {
+                merged.append(line);
+                mergedLine++;
+            }
+            position = end;
+        }
+        for (String line : baseLines.subList(position, baseLines.size())) {
+            merged.append(line);
+        }
+        return new Result(merged.toString(), List.copyOf(conflicts));
+    }
+
+    /**
+     * Base lines [start, end) with the given hunks, which all fall inside it, applied.
+     */
+    private static List<String> apply(List<String> base, int start, int end, List<Hunk> hunks) {
+        List<String> region = new ArrayList<>();
+        int position = start;
+        for (Hunk hunk : hunks) {
+            region.addAll(base.subList(position, hunk.baseStart()));
+            region.addAll(hunk.lines());
+            position = hunk.baseEnd();
+        }
+        region.addAll(base.subList(position, end));
+        return region;
+    }
+
+    /**
+     * Lines including their terminator, so joining them gives back the text exactly.
+     */
+    private static List<String> lines(String text) {
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                lines.add(text.substring(start, i + 1));
+                start = i + 1;
+            }
+        }
+        if (start < text.length()) {
+            lines.add(text.substring(start));
+        }
+        return lines;
+    }
+
+    /**
+     * Base lines [baseStart, baseEnd) replaced by {@code lines}.
+     */
+    private record Hunk(int baseStart, int baseEnd, List<String> lines) {
+    }
+
+    private static List<Hunk> diff(List<String> a, List<String> b) {
+        int prefix = 0;
+        while (prefix < a.size() && prefix < b.size() && a.get(prefix).equals(b.get(prefix))) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < a.size() - prefix && suffix < b.size() - prefix
+                && a.get(a.size() - 1 - suffix).equals(b.get(b.size() - 1 - suffix))) {
+            suffix++;
+        }
+        int n = a.size() - prefix - suffix;
+        int m = b.size() - prefix - suffix;
+        if (n == 0 && m == 0) {
+            return List.of();
+        }
+
+        // Compare lines as ints
+        Map<String, Integer> ids = new HashMap<>();
+        int[] x = new int[n];
+        int[] y = new int[m];
+        for (int i = 0; i < n; i++) {
+            x[i] = ids.computeIfAbsent(a.get(prefix + i), k -> ids.size());
+        }
+        for (int i = 0; i < m; i++) {
+            y[i] = ids.computeIfAbsent(b.get(prefix + i), k -> ids.size());
+        }
+
+        byte[] moves = shortestEdit(x, y);
+        if (moves == null) {
+            return List.of(new Hunk(prefix, prefix + n, List.copyOf(b.subList(prefix, prefix + m))));
+        }
+        List<Hunk> hunks = new ArrayList<>();
+        int ai = 0;
+        int bi = 0;
+        int hunkA = -1;
+        int hunkB = -1;
+        for (byte move : moves) {
+            if (move == DIAGONAL) {
+                if (hunkA >= 0) {
+                    hunks.add(new Hunk(prefix + hunkA, prefix + ai, List.copyOf(b.subList(prefix + hunkB, prefix + bi))));
+                    hunkA = -1;
+                }
+                ai++;
+                bi++;
+                continue;
+            }
+            if (hunkA < 0) {
+                hunkA = ai;
+                hunkB = bi;
+            }
+            if (move == DELETE) {
+                ai++;
+            } else {
+                bi++;
+            }
+        }
+        if (hunkA >= 0) {
+            hunks.add(new Hunk(prefix + hunkA, prefix + ai, List.copyOf(b.subList(prefix + hunkB, prefix + bi))));
+        }
+        return hunks;
+    }
+
+    /**
+     * Myers' O(ND) shortest edit script from x to y, as moves in order, or null
+     * if it needs more than {@link #MAX_EDIT_DISTANCE} edits.
+     */
+    private static byte[] shortestEdit(int[] x, int[] y) {
+        int n = x.length;
+        int m = y.length;
+        int limit = Math.min(n + m, MAX_EDIT_DISTANCE);
+        int offset = limit + 1;
+        int[] v = new int[2 * limit + 3];
+        // Furthest x on each diagonal k in [-d, d] after step d, for backtracking
+        List<int[]> trace = new ArrayList<>();
+        int distance = -1;
+        for (int d = 0; d <= limit && distance < 0; d++) {
+            for (int k = -d; k <= d; k += 2) {
+                int px = k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])
+                        ? v[offset + k + 1]
+                        : v[offset + k - 1] + 1;
+                int py = px - k;
+                while (px < n && py < m && x[px] == y[py]) {
+                    px++;
+                    py++;
+                }
+                v[offset + k] = px;
+                if (px >= n && py >= m) {
+                    distance = d;
+                    break;
+                }
+            }
+            int[] step = new int[2 * d + 1];
+            System.arraycopy(v, offset - d, step, 0, step.length);
+            trace.add(step);
+        }
+        if (distance < 0) {
+            return null;
+        }
+
+        byte[] moves = new byte[(n + m + distance) / 2];
+        int count = moves.length;
+        int cx = n;
+        int cy = m;
+        for (int d = distance; d > 0; d--) {
+            int[] previous = trace.get(d - 1);
+            int k = cx - cy;
+            boolean down = k == -d || (k != d && previous[k - 1 + d - 1] < previous[k + 1 + d - 1]);
+            int prevK = down ? k + 1 : k - 1;
+            int prevX = previous[prevK + d - 1];
+            int prevY = prevX - prevK;
+            int startX = down ? prevX : prevX + 1;
+            while (cx > startX) {
+                moves[--count] = DIAGONAL;
+                cx--;
+                cy--;
+            }
+            moves[--count] = down ? INSERT : DELETE;
+            cx = prevX;
+            cy = prevY;
+        }
+        while (cx > 0) {
+            moves[--count] = DIAGONAL;
+            cx--;
+        }
+        return moves;
+    }
+}
@@ -0,0 +1,40 @@
+package com.codetogether.backend.websocket;
+
+import com.codetogether.backend.service.BroadcastService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts payload bytes of broadcasts as they leave for each session
+ * ({@code websocket.broadcast.bytes{stage=written}}); against
+ * {@code stage=encoded} this is the fan-out the broker did for free.
+ *
+ * With the broker relay, messages come back from the external broker without
+ * the marker header, so only the simple broker is counted.
+ */
+@Component
+public class BroadcastBytesInterceptor implements ChannelInterceptor {
+
+    private final Counter writtenBytes;
+
+    public BroadcastBytesInterceptor(MeterRegistry meterRegistry) {
+        this.writtenBytes = Counter.builder("websocket.broadcast.bytes")
+                .description("JSON payload bytes of topic broadcasts")
+                .baseUnit("bytes")
+                .tag("stage", "written")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (Boolean.TRUE.equals(message.getHeaders().get(BroadcastService.BROADCAST_HEADER))
+                && message.getPayload() instanceof byte[] payload) {
+            writtenBytes.increment(payload.length);
+        }
+        return message;
+    }
+}
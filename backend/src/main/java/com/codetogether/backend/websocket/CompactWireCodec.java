@@ -0,0 +1,331 @@
+package com.codetogether.backend.websocket;
+
+import com.codetogether.backend.dto.CursorBatchMessage;
+import com.codetogether.backend.dto.CursorMessage;
+import com.codetogether.backend.dto.CursorPosition;
+import com.codetogether.backend.dto.FileDeltaMessage;
+import com.codetogether.backend.dto.FileDeltaRequest;
+import com.codetogether.backend.dto.TextOperation;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Binary encoding of cursor and edit messages for one STOMP session
+ * (wire-format: compact-v1). Integers are unsigned LEB128 varints, signed
+ * values zigzag-encoded. Ids and names are interned per session and direction:
+ * the first occurrence is sent in full and assigned the next index, later ones
+ * are sent as that index, so a cursor frame is a handful of bytes.
+ *
+ * <pre>
+ * string   := 0 (null) | 1 literal (define next index) | 2 literal (table full) | index + 3
+ * literal  := length utf8-bytes
+ * message  := tag body
+ *   1 cursor        room file user position timestamp
+ *   2 cursor batch  timestamp count cursor*   (cursor timestamps relative to the batch)
+ *   3 delta request room file client baseRevision ops
+ *   4 delta         room file client revision ops
+ * position := 0 | 1 zigzag(line) zigzag(column)
+ * timestamp:= 0 | zigzag(value - base) + 1
+ * ops      := count (position &lt;&lt; 1 | isDelete, then literal text or length)*
+ * </pre>
+ *
+ * Frames must be decoded in the order they were encoded; instances are per
+ * session and not shared. Frames that define strings carry
+ * {@code wire-defines: 1}: an outbound queue may drop the others, never these.
+ */
+public final class CompactWireCodec {
+
+    public static final String HEADER = "wire-format";
+    public static final String VERSION = "compact-v1";
+    public static final String DEFINES_HEADER = "wire-defines";
+
+    static final int TAG_CURSOR = 1;
+    static final int TAG_CURSOR_BATCH = 2;
+    static final int TAG_DELTA_REQUEST = 3;
+    static final int TAG_DELTA = 4;
+
+    // Entries per direction; later strings are sent as literals
+    private static final int MAX_STRINGS = 4096;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Integer> outbound = new HashMap<>();
+    private final List<String> inbound = new ArrayList<>();
+
+    /**
+     * An encoded frame; {@code definesStrings} if it assigned string table entries.
+     */
+    public record Encoded(byte[] frame, boolean definesStrings) {
+    }
+
+    /**
+     * Encode a server message, or return null if its type has no compact form.
+     */
+    public Encoded encode(Object value) {
+        lock.lock();
+        try {
+            Writer out = new Writer();
+            if (value instanceof CursorBatchMessage batch) {
+                out.varint(TAG_CURSOR_BATCH);
+                out.varlong(batch.timestamp());
+                out.varint(batch.cursors().size());
+                for (CursorMessage cursor : batch.cursors()) {
+                    writeCursor(out, cursor, batch.timestamp());
+                }
+            } else if (value instanceof CursorMessage cursor) {
+                out.varint(TAG_CURSOR);
+                writeCursor(out, cursor, 0L);
+            } else if (value instanceof FileDeltaMessage delta) {
+                out.varint(TAG_DELTA);
+                writeString(out, delta.roomId());
+                writeString(out, delta.fileId());
+                writeString(out, delta.clientId());
+                out.varlong(delta.revision());
+                writeOps(out, delta.ops());
+            } else {
+                return null;
+            }
+            return new Encoded(out.toByteArray(), out.defines);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Decode a client frame into a {@link CursorMessage} or {@link FileDeltaRequest}.
+     *
+     * @throws IllegalArgumentException if the frame is malformed
+     */
+    public Object decode(byte[] frame) {
+        lock.lock();
+        try {
+            Reader in = new Reader(frame);
+            int tag = in.varint();
+            Object value = switch (tag) {
+                case TAG_CURSOR -> readCursor(in, 0L);
+                case TAG_DELTA_REQUEST -> {
+                    FileDeltaRequest request = new FileDeltaRequest();
+                    request.setRoomId(readString(in));
+                    request.setFileId(readString(in));
+                    request.setClientId(readString(in));
+                    request.setBaseRevision(in.varlong());
+                    request.setOps(readOps(in));
+                    yield request;
+                }
+                default -> throw new IllegalArgumentException("Unknown compact message tag " + tag);
+            };
+            if (!in.isDone()) {
+                throw new IllegalArgumentException("Trailing bytes in compact frame");
+            }
+            return value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeCursor(Writer out, CursorMessage cursor, long baseTimestamp) {
+        writeString(out, cursor.roomId() != null ? cursor.roomId().toString() : null);
+        writeString(out, cursor.fileId() != null ? cursor.fileId().toString() : null);
+        writeString(out, cursor.username());
+        CursorPosition position = cursor.cursorPosition();
+        if (position == null) {
+            out.varint(0);
+        } else {
+            out.varint(1);
+            out.varlong(zigzag(position.line()));
+            out.varlong(zigzag(position.column()));
+        }
+        out.varlong(cursor.timestamp() == null ? 0 : zigzag(cursor.timestamp() - baseTimestamp) + 1);
+    }
+
+    private CursorMessage readCursor(Reader in, long baseTimestamp) {
+        String room = readString(in);
+        String file = readString(in);
+        String username = readString(in);
+        CursorPosition position = null;
+        if (in.varint() != 0) {
+            position = new CursorPosition((int) unzigzag(in.varlong()), (int) unzigzag(in.varlong()));
+        }
+        long timestamp = in.varlong();
+        return new CursorMessage(
+                room != null ? UUID.fromString(room) : null,
+                file != null ? UUID.fromString(file) : null,
+                username,
+                position,
+                timestamp == 0 ? null : unzigzag(timestamp - 1) + baseTimestamp);
+    }
+
+    private static void writeOps(Writer out, List<TextOperation> ops) {
+        out.varint(ops.size());
+        for (TextOperation op : ops) {
+            out.varlong(((long) op.position() << 1) | (op.isInsert() ? 0 : 1));
+            if (op.isInsert()) {
+                out.literal(op.text());
+            } else {
+                out.varint(op.length());
+            }
+        }
+    }
+
+    private static List<TextOperation> readOps(Reader in) {
+        int count = in.varint();
+        List<TextOperation> ops = new ArrayList<>(Math.min(count, 1024));
+        for (int i = 0; i < count; i++) {
+            long head = in.varlong();
+            if ((head >>> 1) > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Compact op position out of range");
+            }
+            int position = (int) (head >>> 1);
+            if ((head & 1) == 0) {
+                String text = in.literal();
+                if (text == null) {
+                    throw new IllegalArgumentException("Compact insert without text");
+                }
+                ops.add(TextOperation.insert(position, text));
+            } else {
+                ops.add(TextOperation.delete(position, in.varint()));
+            }
+        }
+        return ops;
+    }
+
+    private void writeString(Writer out, String value) {
+        if (value == null) {
+            out.varint(0);
+            return;
+        }
+        Integer index = outbound.get(value);
+        if (index != null) {
+            out.varint(index + 3);
+        } else if (outbound.size() < MAX_STRINGS) {
+            outbound.put(value, outbound.size());
+            out.defines = true;
+            out.varint(1);
+            out.literal(value);
+        } else {
+            out.varint(2);
+            out.literal(value);
+        }
+    }
+
+    private String readString(Reader in) {
+        int ref = in.varint();
+        switch (ref) {
+            case 0:
+                return null;
+            case 1: {
+                String value = in.literal();
+                if (inbound.size() >= MAX_STRINGS) {
+                    throw new IllegalArgumentException("Compact string table full");
+                }
+                inbound.add(value);
+                return value;
+            }
+            case 2:
+                return in.literal();
+            default:
+                if (ref - 3 >= inbound.size()) {
+                    throw new IllegalArgumentException("Unknown compact string index " + (ref - 3));
+                }
+                return inbound.get(ref - 3);
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Writer {
+        private byte[] buffer = new byte[64];
+        private int size;
+        private boolean defines;
+
+        void varint(int value) {
+            varlong(value & 0xFFFFFFFFL);
+        }
+
+        void varlong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void literal(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            varint(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] buffer;
+        private int position;
+
+        Reader(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        int varint() {
+            long value = varlong();
+            // A ten-byte varlong can wrap negative
+            if (value < 0 || value > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Compact varint out of range");
+            }
+            return (int) value;
+        }
+
+        long varlong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= buffer.length) {
+                    throw new IllegalArgumentException("Truncated compact frame");
+                }
+                byte b = buffer[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Compact varint too long");
+        }
+
+        String literal() {
+            int length = varint();
+            if (length > buffer.length - position) {
+                throw new IllegalArgumentException("Truncated compact frame");
+            }
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        boolean isDone() {
+            return position == buffer.length;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.codetogether.backend.websocket;
+
+import com.codetogether.backend.dto.CursorBatchMessage;
+import com.codetogether.backend.dto.CursorMessage;
+import com.codetogether.backend.dto.FileDeltaMessage;
+import com.codetogether.backend.dto.FileDeltaRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Opt-in compact binary wire format, negotiated per STOMP session.
+ *
+ * A client sends {@code wire-format: compact-v1} on CONNECT. From then on its
+ * cursor and delta frames may be sent binary with the same header, and the
+ * cursor batches and file deltas it receives are re-encoded with
+ * {@link CompactWireCodec}; they arrive as binary WebSocket frames with
+ * content-type application/octet-stream and the same header. Every other
+ * frame, and every session that did not ask, stays JSON.
+ *
+ * Per-session string interning means frames must be coded in session order,
+ * so this works as channel interceptors (inbound: on the receiving thread,
+ * before the room lanes; outbound: under preservePublishOrder) rather than as a
+ * MessageConverter, which runs on the handler threads.
+ */
+@Component
+@Slf4j
+public class CompactWireSupport {
+
+    private final ObjectReader deltaReader;
+    private final ObjectReader cursorBatchReader;
+
+    private final Map<String, CompactWireCodec> sessions = new ConcurrentHashMap<>();
+
+    // One broadcast reaches every subscriber with the same payload array: parse the JSON once
+    private final AtomicReferenceArray<Parsed> recentlyParsed = new AtomicReferenceArray<>(64);
+
+    public CompactWireSupport(ObjectMapper objectMapper) {
+        this.deltaReader = objectMapper.readerFor(FileDeltaMessage.class);
+        this.cursorBatchReader = objectMapper.readerFor(CursorBatchMessage.class);
+    }
+
+    public ChannelInterceptor inboundInterceptor() {
+        return new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                return decodeInbound(message);
+            }
+        };
+    }
+
+    public ChannelInterceptor outboundInterceptor() {
+        return new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                return encodeOutbound(message);
+            }
+        };
+    }
+
+    @EventListener
+    public void handleSessionDisconnect(SessionDisconnectEvent event) {
+        sessions.remove(event.getSessionId());
+    }
+
+    private Message<?> decodeInbound(Message<?> message) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getSessionId() == null) {
+            return message;
+        }
+        boolean compact = CompactWireCodec.VERSION.equals(accessor.getFirstNativeHeader(CompactWireCodec.HEADER));
+        if (accessor.getCommand() == StompCommand.CONNECT) {
+            if (compact) {
+                sessions.put(accessor.getSessionId(), new CompactWireCodec());
+            }
+            return message;
+        }
+        if (!compact || accessor.getCommand() != StompCommand.SEND) {
+            return message;
+        }
+
+        CompactWireCodec codec = sessions.get(accessor.getSessionId());
+        if (codec == null || !(message.getPayload() instanceof byte[] frame)) {
+            log.warn("Dropping compact frame from session {} that did not negotiate {}",
+                    accessor.getSessionId(), CompactWireCodec.VERSION);
+            return null;
+        }
+        Object decoded;
+        try {
+            decoded = codec.decode(frame);
+        } catch (IllegalArgumentException e) {
+            log.warn("Dropping malformed compact frame from session {}: {}", accessor.getSessionId(), e.getMessage());
+            return null;
+        }
+
+        // The JSON payload scan cannot see into binary frames; give the room lanes a header instead
+        String roomId = decoded instanceof CursorMessage cursor && cursor.roomId() != null
+                ? cursor.roomId().toString()
+                : decoded instanceof FileDeltaRequest delta ? delta.getRoomId() : null;
+        if (roomId != null) {
+            accessor.setNativeHeader("roomId", roomId);
+        }
+        // @Payload arguments take an already-typed payload as is
+        return MessageBuilder.createMessage(decoded, accessor.getMessageHeaders());
+    }
+
+    private Message<?> encodeOutbound(Message<?> message) {
+        MessageHeaders headers = message.getHeaders();
+        if (SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE || sessions.isEmpty()) {
+            return message;
+        }
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+        CompactWireCodec codec = sessionId != null ? sessions.get(sessionId) : null;
+        if (codec == null || !(message.getPayload() instanceof byte[] json)) {
+            return message;
+        }
+        ObjectReader reader = compactReader(SimpMessageHeaderAccessor.getDestination(headers));
+        if (reader == null) {
+            return message;
+        }
+
+        CompactWireCodec.Encoded encoded;
+        try {
+            encoded = codec.encode(parse(json, reader));
+        } catch (IOException e) {
+            log.debug("Sending JSON to compact session {}: {}", sessionId, e.getMessage());
+            return message;
+        }
+        if (encoded == null) {
+            return message;
+        }
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+        accessor.setNativeHeader(CompactWireCodec.HEADER, CompactWireCodec.VERSION);
+        if (encoded.definesStrings()) {
+            accessor.setNativeHeader(CompactWireCodec.DEFINES_HEADER, "1");
+        }
+        return MessageBuilder.createMessage(encoded.frame(), accessor.getMessageHeaders());
+    }
+
+    /**
+     * Reader for the payload type of the high-volume topics that have a compact form.
+     */
+    private ObjectReader compactReader(String destination) {
+        if (destination == null) {
+            return null;
+        }
+        if (destination.endsWith(".delta") && destination.startsWith("/topic/room.")) {
+            return deltaReader;
+        }
+        if (destination.startsWith("/topic/cursor/")
+                || (destination.startsWith("/topic/room/") && destination.endsWith("/cursor"))) {
+            return cursorBatchReader;
+        }
+        return null;
+    }
+
+    private Object parse(byte[] json, ObjectReader reader) throws IOException {
+        int slot = System.identityHashCode(json) & (recentlyParsed.length() - 1);
+        Parsed parsed = recentlyParsed.get(slot);
+        if (parsed != null && parsed.json() == json) {
+            return parsed.value();
+        }
+        Object value = reader.readValue(json);
+        recentlyParsed.set(slot, new Parsed(json, value));
+        return value;
+    }
+
+    private record Parsed(byte[] json, Object value) {
+    }
+}
@@ -0,0 +1,105 @@
+package com.codetogether.backend.websocket;
+
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * An encoded STOMP frame waiting in a {@link SessionOutboundQueue}, with what the
+ * queue needs to know to shed it: its type, its file and whether it is pinned
+ * (a compact frame defining strings later frames refer to).
+ *
+ * @param roomId     room of a file topic frame, else null
+ * @param fileId     file of a file topic frame or of a session snapshot, else null
+ * @param enqueuedAt {@link System#nanoTime()} when it was queued
+ * @param sequence   position in the session's send order, assigned by the queue
+ */
+record OutboundFrame(WebSocketMessage<?> message, OutboundFrameType type, String destination,
+        String roomId, String fileId, boolean pinned, int size, long enqueuedAt, long sequence) {
+
+    private static final String FILE_TOPIC_PREFIX = "/topic/room.";
+
+    static OutboundFrame of(WebSocketMessage<?> message, long enqueuedAt) {
+        String head = head(message);
+        int lineEnd = head.indexOf('\n');
+        String command = (lineEnd < 0 ? head : head.substring(0, lineEnd)).strip();
+
+        String destination = null;
+        String fileId = null;
+        boolean pinned = false;
+        int start = lineEnd + 1;
+        while (lineEnd >= 0 && start < head.length()) {
+            int end = head.indexOf('\n', start);
+            if (end < 0) {
+                end = head.length();
+            }
+            if (destination == null && head.startsWith("destination:", start)) {
+                destination = head.substring(start + "destination:".length(), end).strip();
+            } else if (fileId == null && head.startsWith("file-id:", start)) {
+                fileId = head.substring(start + "file-id:".length(), end).strip();
+            } else if (head.startsWith(CompactWireCodec.DEFINES_HEADER + ":", start)) {
+                pinned = true;
+            }
+            start = end + 1;
+        }
+
+        OutboundFrameType type = OutboundFrameType.of(command, destination);
+        String roomId = null;
+        if ((type == OutboundFrameType.EDIT || type == OutboundFrameType.SNAPSHOT)
+                && destination.startsWith(FILE_TOPIC_PREFIX)) {
+            // /topic/room.{roomId}.file.{fileId}.{kind}
+            String[] parts = destination.substring(FILE_TOPIC_PREFIX.length()).split("\\.");
+            if (parts.length == 4 && "file".equals(parts[1])) {
+                roomId = parts[0];
+                fileId = parts[2];
+            }
+        }
+        return new OutboundFrame(message, type, destination, roomId, fileId, pinned,
+                message.getPayloadLength(), enqueuedAt, 0);
+    }
+
+    OutboundFrame withSequence(long sequence) {
+        return new OutboundFrame(message, type, destination, roomId, fileId, pinned, size, enqueuedAt, sequence);
+    }
+
+    /**
+     * Whether this frame makes a queued {@code older} one redundant: a newer full
+     * snapshot of the same file, on the same destination.
+     */
+    boolean supersedes(OutboundFrame older) {
+        return (type == OutboundFrameType.SNAPSHOT || type == OutboundFrameType.SYNC)
+                && older.type == type
+                && !older.pinned
+                && Objects.equals(fileId, older.fileId)
+                && Objects.equals(destination, older.destination);
+    }
+
+    /**
+     * Command and header lines, without the body.
+     */
+    private static String head(WebSocketMessage<?> message) {
+        if (message instanceof TextMessage text) {
+            String payload = text.getPayload();
+            int end = payload.indexOf("\n\n");
+            return end < 0 ? payload : payload.substring(0, end);
+        }
+        if (message instanceof BinaryMessage binary) {
+            ByteBuffer payload = binary.getPayload();
+            int from = payload.position();
+            int end = from;
+            while (end < payload.limit() && !(payload.get(end) == '\n'
+                    && end + 1 < payload.limit() && payload.get(end + 1) == '\n')) {
+                end++;
+            }
+            byte[] head = new byte[end - from];
+            payload.duplicate().get(head);
+            // Headers this queue reads are ASCII
+            return new String(head, StandardCharsets.ISO_8859_1);
+        }
+        return "";
+    }
+}
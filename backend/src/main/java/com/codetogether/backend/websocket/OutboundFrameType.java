@@ -0,0 +1,53 @@
+package com.codetogether.backend.websocket;
+
+/**
+ * What an outbound STOMP frame carries, which decides how a congested session
+ * queue may shed it. Taken from the frame's command and destination.
+ */
+public enum OutboundFrameType {
+
+    /** Anything but MESSAGE: CONNECTED, RECEIPT, ERROR, heartbeats */
+    CONTROL,
+    /** File deltas and the sender's ack ({@code /topic/room.{r}.file.{f}.delta}) */
+    EDIT,
+    /** Full-content file edits ({@code .edit}); a newer one supersedes a queued one */
+    SNAPSHOT,
+    /** Session snapshots on {@code /user/queue/file-sync}; a newer one supersedes a queued one */
+    SYNC,
+    /** Cursor batches; only the latest matters */
+    CURSOR,
+    /** Presence lists and events, editing indicators; only the latest matters */
+    PRESENCE,
+    /** Chat; never shed */
+    CHAT,
+    /** Folder tree events, auto-save toggles and the rest; never shed */
+    OTHER;
+
+    static OutboundFrameType of(String command, String destination) {
+        if (!"MESSAGE".equals(command) || destination == null) {
+            return CONTROL;
+        }
+        if (destination.endsWith("/queue/file-sync")) {
+            return SYNC;
+        }
+        if (destination.startsWith("/topic/cursor/")) {
+            return CURSOR;
+        }
+        if (destination.startsWith("/topic/room/")) {
+            return destination.endsWith("/cursor") ? CURSOR : destination.endsWith("/chat") ? CHAT : OTHER;
+        }
+        if (!destination.startsWith("/topic/room.")) {
+            return OTHER;
+        }
+        if (destination.endsWith(".delta")) {
+            return EDIT;
+        }
+        if (destination.endsWith(".edit")) {
+            return SNAPSHOT;
+        }
+        if (destination.endsWith(".presence") || destination.endsWith(".editing-indicators")) {
+            return PRESENCE;
+        }
+        return destination.endsWith(".chat") ? CHAT : OTHER;
+    }
+}
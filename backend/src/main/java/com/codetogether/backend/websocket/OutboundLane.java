@@ -0,0 +1,29 @@
+package com.codetogether.backend.websocket;
+
+/**
+ * Priority lanes of a session's outbound queue. A congested session's drain
+ * takes frames from the lanes by weighted round-robin
+ * ({@code collaboration.outbound.weights.*}), FIFO within each lane.
+ */
+public enum OutboundLane {
+
+    /** Deltas and acks, file snapshots, control frames and compact frames defining strings */
+    EDITS,
+    CURSORS,
+    PRESENCE,
+    /** Chat and the remaining room events, such as folder tree changes */
+    CHAT;
+
+    static OutboundLane of(OutboundFrame frame) {
+        if (frame.pinned()) {
+            // Frames referring to its strings may sit in any lane; EDITS drains first
+            return EDITS;
+        }
+        return switch (frame.type()) {
+            case CONTROL, EDIT, SNAPSHOT, SYNC -> EDITS;
+            case CURSOR -> CURSORS;
+            case PRESENCE -> PRESENCE;
+            case CHAT, OTHER -> CHAT;
+        };
+    }
+}
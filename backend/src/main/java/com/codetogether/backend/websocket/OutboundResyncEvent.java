@@ -0,0 +1,8 @@
+package com.codetogether.backend.websocket;
+
+/**
+ * A session's queue shed edits of a file; the session needs a snapshot of it on
+ * {@code /user/queue/file-sync} carrying a {@code file-id} header.
+ */
+public record OutboundResyncEvent(String sessionId, String roomId, String fileId) {
+}
@@ -0,0 +1,79 @@
+package com.codetogether.backend.websocket;
+
+import com.fasterxml.jackson.annotation.JsonView;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.core.MethodParameter;
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.util.MimeType;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * STOMP JSON converter that keeps one {@link ObjectReader} per payload
+ * parameter type and one {@link ObjectWriter} per outbound payload class,
+ * instead of resolving the type and building a reader or writer for every
+ * frame. Payloads with a {@link JsonView}, or a serialized form other than
+ * UTF-8 bytes, go through the regular converter.
+ */
+public class PrebuiltJacksonMessageConverter extends MappingJackson2MessageConverter {
+
+    private final Map<Type, ObjectReader> readers = new ConcurrentHashMap<>();
+    private final Map<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    public PrebuiltJacksonMessageConverter(ObjectMapper objectMapper) {
+        super(objectMapper);
+    }
+
+    @Override
+    @Nullable
+    protected Object convertFromInternal(Message<?> message, Class<?> targetClass, @Nullable Object conversionHint) {
+        if (!(message.getPayload() instanceof byte[] payload) || hasJsonView(conversionHint)) {
+            return super.convertFromInternal(message, targetClass, conversionHint);
+        }
+        // The parameter type keeps generics such as List<TextOperation>
+        Type type = conversionHint instanceof MethodParameter parameter
+                ? parameter.getNestedGenericParameterType()
+                : targetClass;
+        try {
+            return readers.computeIfAbsent(type, t -> getObjectMapper().readerFor(getObjectMapper().constructType(t)))
+                    .readValue(payload);
+        } catch (IOException e) {
+            throw new MessageConversionException(message, "Could not read JSON: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    @Nullable
+    protected Object convertToInternal(Object payload, @Nullable MessageHeaders headers,
+            @Nullable Object conversionHint) {
+        MimeType mimeType = getMimeType(headers);
+        boolean utf8 = mimeType == null || mimeType.getCharset() == null
+                || StandardCharsets.UTF_8.equals(mimeType.getCharset());
+        if (getSerializedPayloadClass() != byte[].class || !utf8 || hasJsonView(conversionHint)) {
+            return super.convertToInternal(payload, headers, conversionHint);
+        }
+        try {
+            return writers.computeIfAbsent(payload.getClass(), getObjectMapper()::writerFor)
+                    .writeValueAsBytes(payload);
+        } catch (IOException e) {
+            throw new MessageConversionException("Could not write JSON: " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean hasJsonView(@Nullable Object conversionHint) {
+        if (conversionHint instanceof MethodParameter parameter) {
+            return parameter.hasParameterAnnotation(JsonView.class) || parameter.hasMethodAnnotation(JsonView.class);
+        }
+        return conversionHint instanceof JsonView;
+    }
+}
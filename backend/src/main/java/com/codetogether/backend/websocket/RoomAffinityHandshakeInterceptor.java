@@ -0,0 +1,73 @@
+package com.codetogether.backend.websocket;
+
+import com.codetogether.backend.dto.RoomRouteResponse;
+import com.codetogether.backend.service.RoomRoutingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Keeps WebSocket sessions on the node that owns their room.
+ * Clients connect with /ws?roomId={roomId}; a handshake for a room owned by
+ * another node is refused with 421 and an X-Room-Node header naming the owner,
+ * so the client (or a load balancer hashing on roomId) can reconnect there.
+ */
+@Component
+public class RoomAffinityHandshakeInterceptor implements HandshakeInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoomAffinityHandshakeInterceptor.class);
+
+    public static final String ROOM_NODE_HEADER = "X-Room-Node";
+
+    private static final HttpStatusCode MISDIRECTED_REQUEST = HttpStatusCode.valueOf(421);
+
+    private final RoomRoutingService roomRoutingService;
+
+    public RoomAffinityHandshakeInterceptor(RoomRoutingService roomRoutingService) {
+        this.roomRoutingService = roomRoutingService;
+    }
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+            WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        String roomIdParam = UriComponentsBuilder.fromUri(request.getURI()).build()
+                .getQueryParams().getFirst("roomId");
+        if (roomIdParam == null) {
+            return true;
+        }
+
+        UUID roomId;
+        try {
+            roomId = UUID.fromString(roomIdParam);
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+        attributes.put("roomId", roomId.toString());
+
+        RoomRouteResponse route = roomRoutingService.route(roomId);
+        if (route.local()) {
+            return true;
+        }
+
+        logger.debug("Refusing handshake for room {} owned by node {}", roomId, route.nodeId());
+        response.setStatusCode(MISDIRECTED_REQUEST);
+        if (route.url() != null) {
+            response.getHeaders().add(ROOM_NODE_HEADER, route.url());
+        }
+        return false;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+            WebSocketHandler wsHandler, Exception exception) {
+    }
+}
@@ -0,0 +1,183 @@
+package com.codetogether.backend.websocket;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executor for the clientInboundChannel that runs all messages of one room on the
+ * same single-threaded lane. Messages for a room are therefore handled in arrival
+ * order, and a busy room can only hold up the rooms hashed onto its own lane.
+ *
+ * The room is taken from the destination (/app/room/{roomId}/..., /topic/room.{roomId}...),
+ * a "roomId" native header, or the "roomId" field of the JSON payload. Frames
+ * without a room (CONNECT, DISCONNECT, ...) are routed by session id.
+ */
+public class RoomLaneTaskExecutor extends ThreadPoolTaskExecutor implements MeterBinder {
+
+    private static final byte[] ROOM_ID_FIELD = "\"roomId\"".getBytes(StandardCharsets.US_ASCII);
+
+    private static final List<String> ROOM_DESTINATION_PREFIXES = List.of(
+            "/topic/room.", "/topic/room/", "/app/room/", "/topic/folder/", "/topic/editor/", "/topic/cursor/");
+
+    private final int laneCount;
+    private final int laneCapacity;
+    private volatile ThreadPoolExecutor[] lanes;
+
+    public RoomLaneTaskExecutor(int laneCount, int laneCapacity) {
+        this.laneCount = laneCount;
+        this.laneCapacity = laneCapacity;
+    }
+
+    @Override
+    protected ExecutorService initializeExecutor(ThreadFactory threadFactory,
+            RejectedExecutionHandler rejectedExecutionHandler) {
+        ThreadPoolExecutor[] created = new ThreadPoolExecutor[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            String name = getThreadNamePrefix() + "lane-" + i;
+            created[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(laneCapacity),
+                    runnable -> {
+                        Thread thread = threadFactory.newThread(runnable);
+                        thread.setName(name);
+                        return thread;
+                    },
+                    rejectedExecutionHandler);
+        }
+        lanes = created;
+        // The regular pool still backs submit()/getThreadPoolExecutor() for anything not routed by room
+        return super.initializeExecutor(threadFactory, rejectedExecutionHandler);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        ThreadPoolExecutor[] current = lanes;
+        if (current == null || !(task instanceof MessageHandlingRunnable messageTask)) {
+            super.execute(task);
+            return;
+        }
+        String key = routingKey(messageTask.getMessage());
+        if (key == null) {
+            super.execute(task);
+            return;
+        }
+        current[Math.floorMod(key.hashCode(), current.length)].execute(task);
+    }
+
+    @Override
+    public void shutdown() {
+        ThreadPoolExecutor[] current = lanes;
+        if (current != null) {
+            for (ThreadPoolExecutor lane : current) {
+                lane.shutdown();
+            }
+        }
+        super.shutdown();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (int i = 0; i < laneCount; i++) {
+            int lane = i;
+            Gauge.builder("websocket.inbound.lane.queue", this, executor -> executor.queueDepth(lane))
+                    .description("Inbound STOMP messages waiting on a room lane")
+                    .tag("lane", String.valueOf(lane))
+                    .register(registry);
+        }
+    }
+
+    public int getLaneCount() {
+        return laneCount;
+    }
+
+    private double queueDepth(int lane) {
+        ThreadPoolExecutor[] current = lanes;
+        return current != null ? current[lane].getQueue().size() : 0;
+    }
+
+    static String routingKey(Message<?> message) {
+        // Static header lookups: no accessor allocation per inbound frame
+        MessageHeaders headers = message.getHeaders();
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(headers);
+        if (type != SimpMessageType.MESSAGE && type != SimpMessageType.SUBSCRIBE) {
+            return sessionId;
+        }
+
+        String roomId = roomFromDestination(SimpMessageHeaderAccessor.getDestination(headers));
+        if (roomId == null) {
+            roomId = SimpMessageHeaderAccessor.getFirstNativeHeader("roomId", headers);
+        }
+        if (roomId == null && message.getPayload() instanceof byte[] payload) {
+            roomId = roomFromPayload(payload);
+        }
+        return roomId != null ? roomId : sessionId;
+    }
+
+    private static String roomFromDestination(String destination) {
+        if (destination == null) {
+            return null;
+        }
+        for (String prefix : ROOM_DESTINATION_PREFIXES) {
+            if (destination.startsWith(prefix)) {
+                int start = prefix.length();
+                int end = start;
+                while (end < destination.length() && destination.charAt(end) != '.' && destination.charAt(end) != '/') {
+                    end++;
+                }
+                return end > start ? destination.substring(start, end) : null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Find {@code "roomId": "<value>"} in a JSON payload without parsing it.
+     */
+    private static String roomFromPayload(byte[] payload) {
+        int field = indexOf(payload, ROOM_ID_FIELD);
+        if (field < 0) {
+            return null;
+        }
+        int i = field + ROOM_ID_FIELD.length;
+        while (i < payload.length && (payload[i] == ' ' || payload[i] == ':')) {
+            i++;
+        }
+        if (i >= payload.length || payload[i] != '"') {
+            return null;
+        }
+        int start = ++i;
+        while (i < payload.length && payload[i] != '"') {
+            i++;
+        }
+        return i < payload.length ? new String(payload, start, i - start, StandardCharsets.UTF_8) : null;
+    }
+
+    private static int indexOf(byte[] haystack, byte[] needle) {
+        outer:
+        for (int i = 0; i <= haystack.length - needle.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (haystack[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,325 @@
+package com.codetogether.backend.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Bounded outbound queue of one WebSocket session. {@link #sendMessage} only
+ * queues, so the broker fan-out never waits on this client's socket; one drain
+ * task at a time writes the queue out on the {@link SlowConsumerGuard}'s executor.
+ *
+ * When more than the buffer limit is queued, frames are shed by type, oldest first:
+ * <ol>
+ * <li>cursor and presence frames, which later ones replace anyway;</li>
+ * <li>file deltas and full-content edits. The session is resynced with a snapshot
+ * of each such file instead, and deltas for it that are still in flight are dropped
+ * until the snapshot arrives; they are all older than it.</li>
+ * </ol>
+ * Chat, control frames, session snapshots and compact frames defining strings are
+ * never shed. If those alone exceed the hard limit, the session is closed.
+ *
+ * Frames wait in {@link OutboundLane}s, so a backlog of cursor or presence frames
+ * does not hold up edits. Reordering across lanes is safe except for compact
+ * strings: a frame is not written before a defining frame queued ahead of it.
+ *
+ * Frames taken together by the drain go out as one WebSocket message, up to
+ * {@code collaboration.outbound.coalesce.max-bytes}.
+ */
+@Slf4j
+class SessionOutboundQueue extends WebSocketSessionDecorator {
+
+    // A resync that never arrived (file deleted, send failed) stops holding back deltas
+    private static final long RESYNC_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final SlowConsumerGuard guard;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Deque<OutboundFrame>> lanes = new ArrayList<>();
+    // Sequences of queued defining frames, all in the EDITS lane
+    private final Deque<Long> pinned = new ArrayDeque<>();
+    private final int[] weights;
+    private final int[] credits;
+    private int currentLane;
+    private long sequence;
+    // fileId -> System.nanoTime() the resync was requested
+    private final Map<String, Long> pendingResyncs = new HashMap<>();
+    private long queuedBytes;
+    private boolean draining;
+    private volatile long writingSince;
+    private volatile boolean discarded;
+
+    SessionOutboundQueue(WebSocketSession session, SlowConsumerGuard guard) {
+        super(session);
+        this.guard = guard;
+        for (int i = 0; i < OutboundLane.values().length; i++) {
+            lanes.add(new ArrayDeque<>());
+        }
+        this.weights = guard.laneWeights();
+        this.credits = weights.clone();
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        if (discarded) {
+            return;
+        }
+        OutboundFrame frame = OutboundFrame.of(message, System.nanoTime());
+        List<OutboundFrame> resyncs = List.of();
+        long queued;
+        boolean overflow;
+        boolean startDrain = false;
+        lock.lock();
+        try {
+            if (!offer(frame)) {
+                return;
+            }
+            if (queuedBytes > guard.bufferBytes()) {
+                resyncs = shed(frame.enqueuedAt());
+            }
+            queued = queuedBytes;
+            overflow = queued > guard.hardLimitBytes();
+            if (!overflow && !draining) {
+                draining = true;
+                startDrain = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        for (OutboundFrame edit : resyncs) {
+            guard.requestResync(getId(), edit.roomId(), edit.fileId());
+        }
+        if (overflow) {
+            log.warn("Closing session {}: {} bytes queued and none of them can be shed", getId(), queued);
+            discard();
+            guard.recordOverflow();
+            getDelegate().close(CloseStatus.SESSION_NOT_RELIABLE);
+        } else if (startDrain) {
+            // Let frames published right after this one share its write
+            guard.executeAfter(this::drain, guard.coalesceLingerNanos());
+        }
+    }
+
+    /**
+     * How long the oldest unwritten frame has been waiting, in nanoseconds.
+     */
+    long lagNanos() {
+        long now = System.nanoTime();
+        long oldest = writingSince;
+        lock.lock();
+        try {
+            for (Deque<OutboundFrame> lane : lanes) {
+                OutboundFrame first = lane.peekFirst();
+                if (first != null && (oldest == 0 || first.enqueuedAt() < oldest)) {
+                    oldest = first.enqueuedAt();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return oldest == 0 ? 0 : now - oldest;
+    }
+
+    long queuedBytes() {
+        lock.lock();
+        try {
+            return queuedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drop everything queued; later sends are ignored. For closed sessions.
+     */
+    void discard() {
+        discarded = true;
+        lock.lock();
+        try {
+            lanes.forEach(Deque::clear);
+            pinned.clear();
+            pendingResyncs.clear();
+            queuedBytes = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queue a frame, unless it is a delta of a file waiting for its resync.
+     */
+    private boolean offer(OutboundFrame offered) {
+        OutboundFrame frame = offered.withSequence(++sequence);
+        switch (frame.type()) {
+            case EDIT -> {
+                Long requestedAt = pendingResyncs.get(frame.fileId());
+                if (requestedAt != null && !frame.pinned()) {
+                    if (frame.enqueuedAt() - requestedAt < RESYNC_TIMEOUT_NANOS) {
+                        guard.recordShed(frame);
+                        return false;
+                    }
+                    pendingResyncs.remove(frame.fileId());
+                }
+            }
+            case SNAPSHOT, SYNC -> {
+                pendingResyncs.remove(frame.fileId());
+                drop(frame::supersedes);
+            }
+            default -> {
+            }
+        }
+        lanes.get(OutboundLane.of(frame).ordinal()).addLast(frame);
+        if (frame.pinned()) {
+            pinned.addLast(frame.sequence());
+        }
+        queuedBytes += frame.size();
+        return true;
+    }
+
+    /**
+     * Shed frames by type, stopping after the first step that gets the queue back
+     * under the buffer limit.
+     *
+     * @return one shed edit frame per file that needs a resync
+     */
+    private List<OutboundFrame> shed(long now) {
+        drop(frame -> frame.type() == OutboundFrameType.CURSOR || frame.type() == OutboundFrameType.PRESENCE);
+        if (queuedBytes <= guard.bufferBytes()) {
+            return List.of();
+        }
+
+        Map<String, OutboundFrame> files = new HashMap<>();
+        drop(frame -> {
+            boolean edit = (frame.type() == OutboundFrameType.EDIT || frame.type() == OutboundFrameType.SNAPSHOT)
+                    && frame.fileId() != null && frame.roomId() != null;
+            if (edit) {
+                files.putIfAbsent(frame.fileId(), frame);
+            }
+            return edit;
+        });
+        List<OutboundFrame> resyncs = new ArrayList<>();
+        for (OutboundFrame frame : files.values()) {
+            if (pendingResyncs.putIfAbsent(frame.fileId(), now) == null) {
+                resyncs.add(frame);
+            }
+        }
+        return resyncs;
+    }
+
+    private void drop(Predicate<OutboundFrame> shed) {
+        for (Deque<OutboundFrame> lane : lanes) {
+            for (Iterator<OutboundFrame> it = lane.iterator(); it.hasNext(); ) {
+                OutboundFrame frame = it.next();
+                if (!frame.pinned() && shed.test(frame)) {
+                    it.remove();
+                    queuedBytes -= frame.size();
+                    guard.recordShed(frame);
+                }
+            }
+        }
+    }
+
+    /**
+     * Weighted round-robin over the lanes: the current lane may send as many frames
+     * in a row as its weight, then the next non-empty one takes over. Frames queued
+     * behind a defining frame wait for it, which EDITS then sends.
+     *
+     * @param batch frames already taken for this write; the next one must be of the
+     *              same WebSocket message type and fit in {@code room} bytes, else null
+     */
+    private OutboundFrame poll(List<OutboundFrame> batch, long room) {
+        for (int i = 0; i <= 2 * lanes.size(); i++) {
+            Deque<OutboundFrame> lane = lanes.get(currentLane);
+            OutboundFrame head = lane.peekFirst();
+            boolean blocked = head != null && !pinned.isEmpty() && head.sequence() > pinned.peekFirst();
+            if (head != null && credits[currentLane] > 0 && !blocked) {
+                if (!batch.isEmpty() && (head.size() > room
+                        || head.message().getClass() != batch.get(0).message().getClass())) {
+                    return null;
+                }
+                credits[currentLane]--;
+                lane.pollFirst();
+                if (head.pinned()) {
+                    pinned.pollFirst();
+                }
+                return head;
+            }
+            credits[currentLane] = weights[currentLane];
+            currentLane = (currentLane + 1) % lanes.size();
+        }
+        return null;
+    }
+
+    /**
+     * Write the queue out, packing frames that are queued together into one
+     * WebSocket message: STOMP frames are NUL-terminated, so clients split them.
+     */
+    private void drain() {
+        List<OutboundFrame> batch = new ArrayList<>();
+        while (true) {
+            long bytes = 0;
+            lock.lock();
+            try {
+                OutboundFrame frame;
+                while ((frame = poll(batch, guard.coalesceMaxBytes() - bytes)) != null) {
+                    batch.add(frame);
+                    bytes += frame.size();
+                }
+                if (batch.isEmpty() || discarded) {
+                    draining = false;
+                    return;
+                }
+                queuedBytes -= bytes;
+                writingSince = batch.stream().mapToLong(OutboundFrame::enqueuedAt).min().orElse(0);
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                getDelegate().sendMessage(coalesce(batch, bytes));
+                guard.recordWritten(batch);
+            } catch (IOException | RuntimeException e) {
+                log.debug("Dropping queued frames of session {}: {}", getId(), e.getMessage());
+                discard();
+            } finally {
+                writingSince = 0;
+                batch.clear();
+            }
+        }
+    }
+
+    private static WebSocketMessage<?> coalesce(List<OutboundFrame> batch, long bytes) {
+        if (batch.size() == 1) {
+            return batch.get(0).message();
+        }
+        if (batch.get(0).message() instanceof BinaryMessage) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) bytes);
+            for (OutboundFrame frame : batch) {
+                buffer.put(((BinaryMessage) frame.message()).getPayload().duplicate());
+            }
+            return new BinaryMessage(buffer.flip());
+        }
+        StringBuilder text = new StringBuilder((int) bytes);
+        for (OutboundFrame frame : batch) {
+            text.append(((TextMessage) frame.message()).getPayload());
+        }
+        return new TextMessage(text);
+    }
+}
@@ -0,0 +1,245 @@
+package com.codetogether.backend.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gives every WebSocket session a bounded {@link SessionOutboundQueue}, so a client
+ * on a bad network sheds stale frames and is resynced instead of backing up the
+ * broker fan-out until Spring's send limits kill the session.
+ *
+ * Metrics: {@code websocket.outbound.lag} (queue wait of each written frame),
+ * {@code websocket.outbound.frames-per-write}, {@code websocket.outbound.shed{type}}, {@code websocket.outbound.resyncs},
+ * {@code websocket.outbound.closed}, and gauges for the bytes queued and the
+ * longest wait across sessions. Sessions are not a tag; the lagging ones are logged.
+ */
+@Component
+@Slf4j
+public class SlowConsumerGuard implements WebSocketHandlerDecoratorFactory {
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final Map<String, SessionOutboundQueue> sessions = new ConcurrentHashMap<>();
+
+    private final Timer lag;
+    private final DistributionSummary framesPerWrite;
+    private final Map<OutboundFrameType, Counter> shed = new EnumMap<>(OutboundFrameType.class);
+    private final Counter resyncs;
+    private final Counter closed;
+
+    // Queued bytes per session before stale frames are shed and lagging files resynced
+    @Value("${collaboration.outbound.buffer-bytes:524288}")
+    private long bufferBytes;
+
+    // Queued bytes of frames that cannot be shed before the session is closed
+    @Value("${collaboration.outbound.hard-limit-bytes:4194304}")
+    private long hardLimitBytes;
+
+    // Frames a congested session's drain sends from each lane per round
+    @Value("${collaboration.outbound.weights.edits:8}")
+    private int editsWeight;
+
+    @Value("${collaboration.outbound.weights.cursors:2}")
+    private int cursorsWeight;
+
+    @Value("${collaboration.outbound.weights.presence:1}")
+    private int presenceWeight;
+
+    @Value("${collaboration.outbound.weights.chat:4}")
+    private int chatWeight;
+
+    // Largest WebSocket message queued frames are packed into
+    @Value("${collaboration.outbound.coalesce.max-bytes:65536}")
+    private long coalesceMaxBytes;
+
+    // How long an idle session's drain waits for more frames before its first write
+    @Value("${collaboration.outbound.coalesce.linger:PT0.001S}")
+    private Duration coalesceLinger;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${collaboration.outbound.max-concurrency:1024}")
+    private int maxConcurrency;
+
+    private ThreadPoolTaskExecutor executor;
+
+    // Only hands lingering drains to the executor, never runs them
+    private final ScheduledExecutorService lingerTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "sessionOutbound-linger");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SlowConsumerGuard(ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry) {
+        this.eventPublisher = eventPublisher;
+        this.lag = Timer.builder("websocket.outbound.lag")
+                .description("Time frames wait in a session's outbound queue before they are written")
+                .register(meterRegistry);
+        this.framesPerWrite = DistributionSummary.builder("websocket.outbound.frames-per-write")
+                .description("STOMP frames packed into each WebSocket message written")
+                .register(meterRegistry);
+        for (OutboundFrameType type : OutboundFrameType.values()) {
+            shed.put(type, Counter.builder("websocket.outbound.shed")
+                    .description("Outbound frames dropped or superseded in congested session queues")
+                    .tag("type", type.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+        this.resyncs = Counter.builder("websocket.outbound.resyncs")
+                .description("File snapshots sent to sessions instead of shed edits")
+                .register(meterRegistry);
+        this.closed = Counter.builder("websocket.outbound.closed")
+                .description("Sessions closed because their unsheddable frames exceeded the hard limit")
+                .register(meterRegistry);
+        Gauge.builder("websocket.outbound.queued", sessions,
+                        queues -> queues.values().stream().mapToLong(SessionOutboundQueue::queuedBytes).sum())
+                .description("Bytes waiting in session outbound queues")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("websocket.outbound.max-lag", sessions,
+                        queues -> queues.values().stream().mapToLong(SessionOutboundQueue::lagNanos).max().orElse(0) / 1e6)
+                .description("Longest wait of an unwritten frame across sessions")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Drains block on their session's socket. Virtual threads park; platform threads
+     * grow past the core size, one per blocked session, up to max-concurrency.
+     */
+    @PostConstruct
+    public void start() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("sessionOutbound-");
+        if (virtualThreads) {
+            executor.setThreadFactory(Thread.ofVirtual().name("sessionOutbound-", 0).factory());
+            executor.setCorePoolSize(maxConcurrency);
+            executor.setAllowCoreThreadTimeOut(true);
+        } else {
+            executor.setCorePoolSize(Math.min(Runtime.getRuntime().availableProcessors() * 2, maxConcurrency));
+            executor.setQueueCapacity(0);
+        }
+        executor.setMaxPoolSize(maxConcurrency);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lingerTimer.shutdown();
+        executor.shutdown();
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                SessionOutboundQueue queue = new SessionOutboundQueue(session, SlowConsumerGuard.this);
+                sessions.put(session.getId(), queue);
+                super.afterConnectionEstablished(queue);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                SessionOutboundQueue queue = sessions.remove(session.getId());
+                if (queue != null) {
+                    queue.discard();
+                }
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    long bufferBytes() {
+        return bufferBytes;
+    }
+
+    long hardLimitBytes() {
+        return hardLimitBytes;
+    }
+
+    /**
+     * Weights indexed by {@link OutboundLane} ordinal; at least 1, so no lane starves.
+     */
+    int[] laneWeights() {
+        int[] weights = new int[OutboundLane.values().length];
+        weights[OutboundLane.EDITS.ordinal()] = Math.max(1, editsWeight);
+        weights[OutboundLane.CURSORS.ordinal()] = Math.max(1, cursorsWeight);
+        weights[OutboundLane.PRESENCE.ordinal()] = Math.max(1, presenceWeight);
+        weights[OutboundLane.CHAT.ordinal()] = Math.max(1, chatWeight);
+        return weights;
+    }
+
+    long coalesceMaxBytes() {
+        return coalesceMaxBytes;
+    }
+
+    long coalesceLingerNanos() {
+        return coalesceLinger.toNanos();
+    }
+
+    /**
+     * Run a drain after {@code delayNanos} without holding a thread meanwhile. With
+     * every drain thread busy it runs now: the caller-runs fallback must not block
+     * the timer, and frames pile up for the next write anyway.
+     */
+    void executeAfter(Runnable drain, long delayNanos) {
+        if (delayNanos <= 0 || executor.getActiveCount() >= maxConcurrency) {
+            executor.execute(drain);
+        } else {
+            lingerTimer.schedule(() -> executor.execute(drain), delayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Ask for a snapshot of a file for one session, off the sending thread: the
+     * listener publishes to the broker, which may end up back in a session queue.
+     */
+    void requestResync(String sessionId, String roomId, String fileId) {
+        resyncs.increment();
+        log.debug("Session {} is lagging, resyncing file {}", sessionId, fileId);
+        executor.execute(() -> eventPublisher.publishEvent(new OutboundResyncEvent(sessionId, roomId, fileId)));
+    }
+
+    void recordWritten(List<OutboundFrame> batch) {
+        long now = System.nanoTime();
+        for (OutboundFrame frame : batch) {
+            lag.record(now - frame.enqueuedAt(), TimeUnit.NANOSECONDS);
+        }
+        framesPerWrite.record(batch.size());
+    }
+
+    void recordShed(OutboundFrame frame) {
+        shed.get(frame.type()).increment();
+    }
+
+    void recordOverflow() {
+        closed.increment();
+    }
+}
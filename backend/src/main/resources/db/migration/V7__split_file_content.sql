@@ -0,0 +1,21 @@
+-- V7: Split file content from file metadata
+-- Goal: Listing, renaming and name checks read the small files row only; the body lives in file_contents
+
+-- 1. Create File Contents table, one row per file
+CREATE TABLE file_contents (
+    file_id UUID PRIMARY KEY,
+    content TEXT,
+
+    CONSTRAINT fk_file_contents_file FOREIGN KEY (file_id) REFERENCES files(id) ON DELETE CASCADE
+);
+
+-- 2. Keep the content length on files for trees and listings
+ALTER TABLE files ADD COLUMN size INTEGER NOT NULL DEFAULT 0;
+
+-- 3. Move existing content over
+INSERT INTO file_contents (file_id, content)
+SELECT id, content FROM files;
+
+UPDATE files SET size = COALESCE(LENGTH(content), 0);
+
+ALTER TABLE files DROP COLUMN content;
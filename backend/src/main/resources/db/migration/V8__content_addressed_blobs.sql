@@ -0,0 +1,32 @@
+-- V8: Content-Addressed File Storage
+-- Goal: Store each distinct file body once, referenced from files by hash; new blobs are deflated by the application
+
+-- 1. Create Content Blobs table
+CREATE TABLE content_blobs (
+    hash VARCHAR(64) PRIMARY KEY,   -- hex SHA-256 of the UTF-8 content
+    encoding VARCHAR(16) NOT NULL,  -- identity or deflate
+    data BYTEA NOT NULL,
+    size INTEGER NOT NULL,          -- uncompressed bytes
+    touched_at TIMESTAMP NOT NULL   -- last save that referenced it; the GC only deletes blobs older than its grace period
+);
+
+-- 2. Move existing content over; it stays uncompressed until the file is next saved
+INSERT INTO content_blobs (hash, encoding, data, size, touched_at)
+SELECT encode(sha256(convert_to(content, 'UTF8')), 'hex'), 'identity', convert_to(content, 'UTF8'),
+       octet_length(convert_to(content, 'UTF8')), NOW()
+FROM file_contents
+WHERE content IS NOT NULL
+ON CONFLICT (hash) DO NOTHING;
+
+-- 3. Reference blobs from files
+ALTER TABLE files ADD COLUMN content_hash VARCHAR(64);
+
+UPDATE files f SET content_hash = encode(sha256(convert_to(c.content, 'UTF8')), 'hex')
+FROM file_contents c
+WHERE c.file_id = f.id AND c.content IS NOT NULL;
+
+ALTER TABLE files ADD CONSTRAINT fk_files_content_blob FOREIGN KEY (content_hash) REFERENCES content_blobs(hash);
+
+CREATE INDEX idx_files_content_hash ON files(content_hash);
+
+DROP TABLE file_contents;
@@ -0,0 +1,24 @@
+-- V9: Delta-Based File Version History
+-- Goal: Keep file history as per-save deltas, with a full keyframe every few versions so any version rebuilds quickly
+
+-- 1. Create File Versions table
+--    keyframe: the full content is the content blob content_hash
+--    delta:    the content of version - 1 with delta_length characters at delta_position replaced by the text in data
+CREATE TABLE file_versions (
+    file_id UUID NOT NULL,
+    version INTEGER NOT NULL,
+    content_hash VARCHAR(64) NOT NULL,  -- hash of the full content at this version
+    keyframe BOOLEAN NOT NULL,
+    delta_position INTEGER,
+    delta_length INTEGER,
+    encoding VARCHAR(16),               -- identity or deflate, for data
+    data BYTEA,
+    size INTEGER NOT NULL,              -- content length in characters
+    created_at TIMESTAMP NOT NULL,
+
+    PRIMARY KEY (file_id, version),
+    CONSTRAINT fk_file_versions_file FOREIGN KEY (file_id) REFERENCES files(id) ON DELETE CASCADE
+);
+
+-- 2. Keyframe blobs must survive the content blob sweep
+CREATE INDEX idx_file_versions_keyframe_hash ON file_versions(content_hash) WHERE keyframe;
@@ -0,0 +1,230 @@
+package com.codetogether.backend.service.impl;
+
+import com.codetogether.backend.dto.FileVersionResponse;
+import com.codetogether.backend.service.ContentStore;
+import com.codetogether.backend.util.ContentCodec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Version history against an in-memory H2 database with the tables of V9.
+ */
+class JdbcFileVersionServiceTest {
+
+    private static final String FILES_TABLE = "CREATE TABLE files (id UUID PRIMARY KEY, content_hash VARCHAR(64))";
+    private static final String FILE_VERSIONS_TABLE = """
+            CREATE TABLE file_versions (
+                file_id UUID NOT NULL REFERENCES files(id) ON DELETE CASCADE,
+                version INTEGER NOT NULL,
+                content_hash VARCHAR(64) NOT NULL,
+                keyframe BOOLEAN NOT NULL,
+                delta_position INTEGER,
+                delta_length INTEGER,
+                encoding VARCHAR(16),
+                data VARBINARY,
+                size INTEGER NOT NULL,
+                created_at TIMESTAMP NOT NULL,
+                PRIMARY KEY (file_id, version))
+            """;
+
+    private final UUID fileId = UUID.randomUUID();
+    private final InMemoryContentStore contentStore = new InMemoryContentStore();
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private JdbcFileVersionService versions;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute(FILES_TABLE);
+        jdbcTemplate.execute(FILE_VERSIONS_TABLE);
+        jdbcTemplate.update("INSERT INTO files (id) VALUES (?)", fileId);
+
+        versions = new JdbcFileVersionService(jdbcTemplate,
+                new TransactionTemplate(new DataSourceTransactionManager(database)), contentStore);
+        ReflectionTestUtils.setField(versions, "keyframeInterval", 3);
+        ReflectionTestUtils.setField(versions, "minInterval", Duration.ZERO);
+        ReflectionTestUtils.setField(versions, "maxVersions", 500);
+        ReflectionTestUtils.setField(versions, "maxAge", Duration.ofDays(30));
+        versions.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void everyThirdVersionIsAKeyframe() {
+        recordAll(7);
+
+        assertEquals(List.of(1, 4, 7), jdbcTemplate.queryForList(
+                "SELECT version FROM file_versions WHERE file_id = ? AND keyframe ORDER BY version", Integer.class, fileId));
+    }
+
+    @Test
+    void versionsAreRebuiltFromTheirNearestKeyframe() {
+        List<String> contents = recordAll(7);
+
+        for (int version = 1; version <= 7; version++) {
+            FileVersionResponse response = versions.getVersion(fileId, version);
+            assertEquals(contents.get(version - 1), response.content(), "version " + version);
+            assertEquals(contents.get(version - 1).length(), response.size());
+        }
+    }
+
+    @Test
+    void deltasAfterAKeyframeDoNotNeedTheBlobsOfEarlierVersions() {
+        List<String> contents = recordAll(6);
+        // Versions 1 to 3 are behind keyframe 4; 5 and 6 are deltas on top of it
+        for (int version = 1; version <= 5; version++) {
+            if (version != 4) {
+                contentStore.remove(contents.get(version - 1));
+            }
+        }
+
+        assertEquals(contents.get(5), versions.getVersion(fileId, 6).content());
+    }
+
+    @Test
+    void contentIsFoundByTheHashOfAnyVersion() {
+        List<String> contents = recordAll(5);
+
+        assertEquals(Optional.of(contents.get(4)), versions.findContent(fileId, ContentCodec.hash(contents.get(4))));
+        assertEquals(Optional.of(contents.get(1)), versions.findContent(fileId, ContentCodec.hash(contents.get(1))));
+        assertEquals(Optional.empty(), versions.findContent(fileId, ContentCodec.hash("never saved")));
+    }
+
+    @Test
+    void compactionPromotesTheOldestKeptDeltaToAKeyframe() {
+        List<String> contents = recordAll(8);
+        ReflectionTestUtils.setField(versions, "maxVersions", 3);
+
+        // Keeps 6 to 8; 6 is a delta on keyframe 4, so it becomes the keyframe
+        assertEquals(5, versions.compact());
+
+        assertEquals(List.of(8, 7, 6), versions.listVersions(fileId).stream().map(FileVersionResponse::version).toList());
+        assertTrue(jdbcTemplate.queryForObject(
+                "SELECT keyframe FROM file_versions WHERE file_id = ? AND version = 6", Boolean.class, fileId));
+        // The deleted keyframe's blob is no longer needed
+        contentStore.remove(contents.get(3));
+        for (int version = 6; version <= 8; version++) {
+            assertEquals(contents.get(version - 1), versions.getVersion(fileId, version).content(), "version " + version);
+        }
+    }
+
+    @Test
+    void recordingContinuesOnTopOfACompactedHistory() {
+        List<String> contents = recordAll(8);
+        ReflectionTestUtils.setField(versions, "maxVersions", 3);
+        versions.compact();
+
+        String next = contents.get(7) + "after compaction\n";
+        versions.record(fileId, next, contentStore.put(next), true);
+
+        assertFalse(jdbcTemplate.queryForObject(
+                "SELECT keyframe FROM file_versions WHERE file_id = ? AND version = 9", Boolean.class, fileId));
+        assertEquals(next, versions.getVersion(fileId, 9).content());
+        assertEquals(contents.get(6), versions.getVersion(fileId, 7).content());
+    }
+
+    @Test
+    void compactionOfAKeyframeBoundaryKeepsItAsIs() {
+        List<String> contents = recordAll(7);
+        ReflectionTestUtils.setField(versions, "maxVersions", 4);
+
+        // Keeps 4 to 7; 4 already is a keyframe
+        assertEquals(3, versions.compact());
+
+        assertEquals(contents.get(3), versions.getVersion(fileId, 4).content());
+        assertEquals(contents.get(6), versions.getVersion(fileId, 7).content());
+    }
+
+    /**
+     * Save {@code count} versions, each changing the previous one in a different place.
+     */
+    private List<String> recordAll(int count) {
+        List<String> contents = new ArrayList<>();
+        StringBuilder content = new StringBuilder("first line\nmiddle\nlast line\n");
+        for (int version = 1; version <= count; version++) {
+            switch (version % 3) {
+                case 0 -> content.insert(0, "header " + version + "\n");
+                case 1 -> content.append("footer ").append(version).append('\n');
+                default -> {
+                    int middle = content.indexOf("middle");
+                    content.replace(middle, middle + "middle".length(), "middle " + version);
+                }
+            }
+            String text = content.toString();
+            contents.add(text);
+            versions.record(fileId, text, contentStore.put(text), true);
+        }
+        return contents;
+    }
+
+    /**
+     * Blobs by hash, without compression or garbage collection.
+     */
+    private static final class InMemoryContentStore implements ContentStore {
+
+        private final Map<String, String> blobs = new HashMap<>();
+
+        @Override
+        public String put(String content) {
+            if (content == null) {
+                return null;
+            }
+            String hash = ContentCodec.hash(content);
+            blobs.put(hash, content);
+            return hash;
+        }
+
+        @Override
+        public List<String> putAll(List<String> contents) {
+            return contents.stream().map(this::put).toList();
+        }
+
+        @Override
+        public Optional<String> get(String hash) {
+            return Optional.ofNullable(hash != null ? blobs.get(hash) : null);
+        }
+
+        @Override
+        public Optional<InputStream> open(String hash) {
+            return get(hash).map(content -> new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        @Override
+        public int deleteUnreferenced() {
+            return 0;
+        }
+
+        void remove(String content) {
+            blobs.remove(ContentCodec.hash(content));
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.codetogether.backend.util;
+
+import com.codetogether.backend.dto.TextOperation;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OperationTransformerTest {
+
+    @Test
+    void insertsAtTheSamePositionAreWonByTheAppliedSide() {
+        List<TextOperation> rebased = OperationTransformer.transform(
+                List.of(TextOperation.insert(2, "a")), List.of(TextOperation.insert(2, "bb")));
+
+        assertEquals(List.of(TextOperation.insert(4, "a")), rebased);
+    }
+
+    @Test
+    void insertBeforeAnotherInsertKeepsItsPosition() {
+        List<TextOperation> rebased = OperationTransformer.transform(
+                List.of(TextOperation.insert(1, "a")), List.of(TextOperation.insert(2, "bb")));
+
+        assertEquals(List.of(TextOperation.insert(1, "a")), rebased);
+    }
+
+    @Test
+    void insertInsideADeletedRangeMovesToItsStart() {
+        List<TextOperation> rebased = OperationTransformer.transform(
+                List.of(TextOperation.insert(4, "x")), List.of(TextOperation.delete(2, 5)));
+
+        assertEquals(List.of(TextOperation.insert(2, "x")), rebased);
+    }
+
+    @Test
+    void insertAfterADeletedRangeShiftsLeft() {
+        List<TextOperation> rebased = OperationTransformer.transform(
+                List.of(TextOperation.insert(9, "x")), List.of(TextOperation.delete(2, 5)));
+
+        assertEquals(List.of(TextOperation.insert(4, "x")), rebased);
+    }
+
+    @Test
+    void deleteAroundAnInsertIsSplitAndKeepsTheInsertedText() {
+        List<TextOperation> rebased = OperationTransformer.transform(
+                List.of(TextOperation.delete(1, 4)), List.of(TextOperation.insert(3, "xy")));
+
+        assertEquals(List.of(TextOperation.delete(1, 2), TextOperation.delete(3, 2)), rebased);
+        assertEquals("axyf", apply("abcdef", List.of(TextOperation.insert(3, "xy")), rebased));
+    }
+
+    @Test
+    void overlappingDeletesOnlyRemoveTheRest() {
+        List<TextOperation> rebased = OperationTransformer.transform(
+                List.of(TextOperation.delete(1, 4)), List.of(TextOperation.delete(3, 3)));
+
+        assertEquals(List.of(TextOperation.delete(1, 2)), rebased);
+        assertEquals("a", apply("abcdef", List.of(TextOperation.delete(3, 3)), rebased));
+    }
+
+    @Test
+    void deleteInsideAnAppliedDeleteIsAbsorbed() {
+        List<TextOperation> rebased = OperationTransformer.transform(
+                List.of(TextOperation.delete(2, 2)), List.of(TextOperation.delete(1, 4)));
+
+        assertEquals(List.of(), rebased);
+    }
+
+    @Test
+    void opListsAreTransformedAgainstEachOtherInOrder() {
+        List<TextOperation> applied = List.of(TextOperation.insert(0, ">> "), TextOperation.delete(9, 4));
+        List<TextOperation> ops = List.of(TextOperation.insert(5, "!"), TextOperation.insert(11, "?"));
+
+        assertEquals(">> abcde!f?klmnop", apply("abcdefghijklmnop", applied,
+                OperationTransformer.transform(ops, applied)));
+    }
+
+    @Test
+    void concurrentSingleOpsConvergeInEitherOrder() {
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            String base = randomText(random, random.nextInt(12));
+            TextOperation a = randomOp(random, base.length(), "A");
+            TextOperation b = randomOp(random, base.length(), "B");
+            if (a.isInsert() && b.isInsert() && a.position() == b.position()) {
+                // Ties are broken by which side was applied first, covered above
+                continue;
+            }
+
+            String ab = apply(base, List.of(a), OperationTransformer.transform(List.of(b), List.of(a)));
+            String ba = apply(base, List.of(b), OperationTransformer.transform(List.of(a), List.of(b)));
+            assertEquals(ab, ba, () -> base + " with " + a + " and " + b);
+        }
+    }
+
+    @Test
+    void rebasedOpsStayApplicable() {
+        Random random = new Random(7);
+        for (int i = 0; i < 5000; i++) {
+            String base = randomText(random, random.nextInt(12));
+            List<TextOperation> applied = randomOps(random, base.length(), "A");
+            List<TextOperation> ops = randomOps(random, base.length(), "B");
+            String afterApplied = apply(base, List.of(), applied);
+
+            List<TextOperation> rebased = OperationTransformer.transform(ops, applied);
+            assertTrue(OperationTransformer.isApplicable(rebased, afterApplied.length()),
+                    () -> base + " with " + applied + " then " + ops + " rebased to " + rebased);
+        }
+    }
+
+    @Test
+    void malformedOpsAreRejectedBeforeTransforming() {
+        assertFalse(OperationTransformer.isWellFormed(null));
+        assertFalse(OperationTransformer.isWellFormed(Arrays.asList(TextOperation.insert(0, "a"), null)));
+        assertFalse(OperationTransformer.isWellFormed(List.of(new TextOperation(null, 0, "a", 1))));
+        assertFalse(OperationTransformer.isWellFormed(List.of(new TextOperation(TextOperation.Type.INSERT, 0, null, 1))));
+        assertFalse(OperationTransformer.isWellFormed(List.of(TextOperation.insert(-1, "a"))));
+        assertFalse(OperationTransformer.isWellFormed(List.of(TextOperation.delete(0, -1))));
+        assertTrue(OperationTransformer.isWellFormed(List.of(TextOperation.insert(0, ""), TextOperation.delete(3, 0))));
+    }
+
+    @Test
+    void opsOutsideTheDocumentAreNotApplicable() {
+        assertTrue(OperationTransformer.isApplicable(List.of(TextOperation.insert(3, "x"), TextOperation.delete(0, 4)), 3));
+        assertFalse(OperationTransformer.isApplicable(List.of(TextOperation.insert(4, "x")), 3));
+        assertFalse(OperationTransformer.isApplicable(List.of(TextOperation.delete(2, 2)), 3));
+        assertFalse(OperationTransformer.isApplicable(List.of(TextOperation.delete(1, Integer.MAX_VALUE)), 3));
+    }
+
+    private static String apply(String base, List<TextOperation> first, List<TextOperation> second) {
+        return OperationTransformer.apply(OperationTransformer.apply(Rope.of(base), first), second).toString();
+    }
+
+    private static List<TextOperation> randomOps(Random random, int length, String text) {
+        List<TextOperation> ops = new ArrayList<>();
+        int count = 1 + random.nextInt(3);
+        for (int i = 0; i < count; i++) {
+            TextOperation op = randomOp(random, length, text + i);
+            ops.add(op);
+            length += op.isInsert() ? op.text().length() : -op.length();
+        }
+        return ops;
+    }
+
+    private static TextOperation randomOp(Random random, int length, String text) {
+        if (length == 0 || random.nextBoolean()) {
+            return TextOperation.insert(random.nextInt(length + 1), text);
+        }
+        int position = random.nextInt(length);
+        return TextOperation.delete(position, 1 + random.nextInt(length - position));
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append((char) ('a' + random.nextInt(26)));
+        }
+        return text.toString();
+    }
+}
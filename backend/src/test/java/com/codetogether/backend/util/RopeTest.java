@@ -0,0 +1,116 @@
+package com.codetogether.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RopeTest {
+
+    @Test
+    void emptyTextIsTheEmptyRope() {
+        assertSame(Rope.EMPTY, Rope.of(""));
+        assertTrue(Rope.of("").isEmpty());
+    }
+
+    @Test
+    void largeTextIsSplitIntoBalancedLeaves() {
+        String text = "x".repeat(Rope.MAX_LEAF * 64 + 17);
+        Rope rope = Rope.of(text);
+
+        assertEquals(text.length(), rope.length());
+        assertEquals(text, rope.toString());
+        assertTrue(rope.height() <= 8, "height " + rope.height());
+    }
+
+    @Test
+    void editsLeaveTheOriginalUntouched() {
+        Rope original = Rope.of("hello world");
+        Rope edited = original.insert(5, ",").delete(0, 1).insert(0, "H");
+
+        assertEquals("hello world", original.toString());
+        assertEquals("Hello, world", edited.toString());
+    }
+
+    @Test
+    void emptyEditsReturnTheSameRope() {
+        Rope rope = Rope.of("abc");
+
+        assertSame(rope, rope.insert(1, ""));
+        assertSame(rope, rope.delete(2, 2));
+    }
+
+    @Test
+    void substringAndCharAtCrossLeafBoundaries() {
+        String text = randomText(new Random(1), Rope.MAX_LEAF * 3 + 5);
+        Rope rope = Rope.of(text);
+
+        int start = Rope.MAX_LEAF - 3;
+        int end = 2 * Rope.MAX_LEAF + 4;
+        assertEquals(text.substring(start, end), rope.substring(start, end));
+        for (int i = 0; i < text.length(); i += 97) {
+            assertEquals(text.charAt(i), rope.charAt(i));
+        }
+    }
+
+    @Test
+    void outOfBoundsEditsAreRejected() {
+        Rope rope = Rope.of("abc");
+
+        assertThrows(IndexOutOfBoundsException.class, () -> rope.insert(4, "x"));
+        assertThrows(IndexOutOfBoundsException.class, () -> rope.insert(-1, "x"));
+        assertThrows(IndexOutOfBoundsException.class, () -> rope.delete(2, 4));
+        assertThrows(IndexOutOfBoundsException.class, () -> rope.delete(2, 1));
+        assertThrows(IndexOutOfBoundsException.class, () -> rope.substring(0, 4));
+    }
+
+    @Test
+    void randomEditsMatchAStringBuilderAndStayBalanced() {
+        Random random = new Random(42);
+        StringBuilder expected = new StringBuilder();
+        Rope rope = Rope.EMPTY;
+        for (int i = 0; i < 20_000; i++) {
+            if (expected.isEmpty() || random.nextInt(3) > 0) {
+                int position = random.nextInt(expected.length() + 1);
+                String text = randomText(random, 1 + random.nextInt(random.nextInt(50) == 0 ? 3000 : 20));
+                expected.insert(position, text);
+                rope = rope.insert(position, text);
+            } else {
+                int start = random.nextInt(expected.length());
+                int end = start + random.nextInt(Math.min(expected.length() - start, 200) + 1);
+                expected.delete(start, end);
+                rope = rope.delete(start, end);
+            }
+            assertEquals(expected.length(), rope.length());
+        }
+
+        assertEquals(expected.toString(), rope.toString());
+        // AVL-like: about 1.44 log2 of the leaf count; leaves are at least a quarter full
+        int leaves = Math.max(1, rope.length() / (Rope.MAX_LEAF / 4));
+        assertTrue(rope.height() <= 4 + 1.45 * Math.log(leaves) / Math.log(2), "height " + rope.height());
+    }
+
+    @Test
+    void concatenatedRopesReadInOrder() {
+        Rope left = Rope.of("a".repeat(5000));
+        Rope right = Rope.of("b".repeat(3));
+
+        Rope joined = Rope.concat(left, right);
+        assertEquals(5003, joined.length());
+        assertEquals("aabbb", joined.substring(4998, 5003));
+        assertSame(left, Rope.concat(left, Rope.EMPTY));
+        assertSame(right, Rope.concat(Rope.EMPTY, right));
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append((char) ('a' + random.nextInt(26)));
+        }
+        return text.toString();
+    }
+}
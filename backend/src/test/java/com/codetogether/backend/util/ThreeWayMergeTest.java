@@ -0,0 +1,102 @@
+package com.codetogether.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ThreeWayMergeTest {
+
+    private static final String BASE = "a\nb\nc\nd\ne\n";
+
+    @Test
+    void changesToDifferentLinesAreCombined() {
+        ThreeWayMerge.Result result = ThreeWayMerge.merge(BASE, "a\nB\nc\nd\ne\n", "a\nb\nc\nD\ne\n");
+
+        assertTrue(result.isClean());
+        assertEquals("a\nB\nc\nD\ne\n", result.merged());
+    }
+
+    @Test
+    void insertionsAndDeletionsOnBothSidesAreCombined() {
+        ThreeWayMerge.Result result = ThreeWayMerge.merge(BASE, "top\na\nb\nc\nd\ne\n", "a\nb\nc\ne\nend\n");
+
+        assertTrue(result.isClean());
+        assertEquals("top\na\nb\nc\ne\nend\n", result.merged());
+    }
+
+    @Test
+    void identicalChangesAreTakenOnce() {
+        ThreeWayMerge.Result result = ThreeWayMerge.merge(BASE, "a\nb\nC\nd\ne\nf\n", "a\nb\nC\nd\ne\n");
+
+        assertTrue(result.isClean());
+        assertEquals("a\nb\nC\nd\ne\nf\n", result.merged());
+    }
+
+    @Test
+    void differentChangesToTheSameLinesConflictAndKeepTheirs() {
+        ThreeWayMerge.Result result = ThreeWayMerge.merge(BASE, "a\nb\nours\nd\ne\n", "a\nb\ntheirs\nd\ne\n");
+
+        assertFalse(result.isClean());
+        assertEquals("a\nb\ntheirs\nd\ne\n", result.merged());
+        assertEquals(1, result.conflicts().size());
+        assertEquals(new ThreeWayMerge.Conflict(2, 1, "ours\n", "theirs\n"), result.conflicts().get(0));
+    }
+
+    @Test
+    void touchingChangesConflict() {
+        ThreeWayMerge.Result result = ThreeWayMerge.merge(BASE, "a\nB\nc\nd\ne\n", "a\nb\nC\nd\ne\n");
+
+        assertFalse(result.isClean());
+        assertEquals(new ThreeWayMerge.Conflict(1, 2, "B\nc\n", "b\nC\n"), result.conflicts().get(0));
+    }
+
+    @Test
+    void contentWithoutTrailingNewlineIsKeptExactly() {
+        ThreeWayMerge.Result result = ThreeWayMerge.merge("a\nb\nc", "A\nb\nc", "a\nb\nc!");
+
+        assertTrue(result.isClean());
+        assertEquals("A\nb\nc!", result.merged());
+    }
+
+    @Test
+    void sideBeyondTheEditLimitIsOneReplacedBlock() {
+        String base = numbered(4400, i -> "line " + i);
+        // Every fourth line: 1100 changed lines, 2200 edits, past the limit of 1000
+        String ours = numbered(4400, i -> i % 4 == 0 ? "ours " + i : "line " + i);
+        // A line two away from any of ours, which merges cleanly under the limit
+        String theirs = numbered(4400, i -> i == 2 ? "theirs 2" : "line " + i);
+
+        ThreeWayMerge.Result result = ThreeWayMerge.merge(base, ours, theirs);
+
+        assertFalse(result.isClean());
+        assertEquals(1, result.conflicts().size());
+        // Everything up to the lines both sides end with, 4397 to 4399
+        assertEquals(new ThreeWayMerge.Conflict(0, 4397, ours.substring(0, ours.indexOf("line 4397")),
+                theirs.substring(0, theirs.indexOf("line 4397"))), result.conflicts().get(0));
+        assertEquals(theirs, result.merged());
+    }
+
+    @Test
+    void sideWithinTheEditLimitStillMergesLineByLine() {
+        String base = numbered(4400, i -> "line " + i);
+        // 400 changed lines: 800 edits
+        String ours = numbered(4400, i -> i % 4 == 0 && i < 1600 ? "ours " + i : "line " + i);
+        String theirs = numbered(4400, i -> i == 2 ? "theirs 2" : "line " + i);
+
+        ThreeWayMerge.Result result = ThreeWayMerge.merge(base, ours, theirs);
+
+        assertTrue(result.isClean());
+        assertEquals(numbered(4400, i -> i == 2 ? "theirs 2" : i % 4 == 0 && i < 1600 ? "ours " + i : "line " + i),
+                result.merged());
+    }
+
+    private static String numbered(int count, IntFunction<String> line) {
+        return IntStream.range(0, count).mapToObj(i -> line.apply(i) + "\n").collect(Collectors.joining());
+    }
+}
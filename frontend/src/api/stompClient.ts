@@ -3,9 +3,62 @@ import { Client, type IMessage, type StompSubscription } from '@stomp/stompjs';
 // WebSocket URL from environment variable or default
 const WS_URL = import.meta.env.VITE_WS_URL || 'ws://localhost:8081/ws';
 
+const REPLAY_DESTINATION = '/user/queue/room-replay';
+
+interface Registration {
+    destination: string;
+    callback: (message: IMessage) => void;
+    headers?: Record<string, string>;
+    subscription: StompSubscription;
+}
+
+interface ReplayMessage {
+    roomId: string;
+    complete: boolean;
+    sequence: number;
+    messages: { sequence: number; destination: string; payload: unknown }[];
+}
+
+interface Buffered {
+    sequence: number;
+    destination: string;
+    callback: (message: IMessage) => void;
+    message: IMessage;
+}
+
+// Room of a topic whose broadcasts carry a `seq` header
+const roomOf = (destination: string): string | null => {
+    const match = /^\/topic\/(?:room\.([^.]+)\.|room\/([^/]+)\/|folder\/(.+)$)/.exec(destination);
+    return match ? match[1] ?? match[2] ?? match[3] : null;
+};
+
+// A replayed broadcast, shaped like the frame it was sent as
+const replayedFrame = (destination: string, sequence: number, payload: unknown): IMessage => {
+    const body = JSON.stringify(payload);
+    return {
+        command: 'MESSAGE',
+        headers: { destination, seq: String(sequence) },
+        body,
+        binaryBody: new TextEncoder().encode(body),
+        isBinaryBody: false,
+        ack: () => {},
+        nack: () => {},
+    } as unknown as IMessage;
+};
+
 class StompClient {
     private client: Client | null = null;
-    private subscriptions: Map<string, StompSubscription> = new Map();
+    // Kept across reconnects: the subscriptions of the old socket are gone, these are restored
+    private registrations: Map<string, Registration> = new Map();
+    private nextSubscriptionId = 0;
+    private hasConnected = false;
+    // roomId -> highest `seq` delivered; frames of different topics may arrive out of order
+    private lastSequences: Map<string, number> = new Map();
+    // destination -> last `seq` delivered on it, resumed from after a reconnect
+    private topicSequences: Map<string, number> = new Map();
+    // roomId -> live broadcasts held back until its replay arrives
+    private resuming: Map<string, Buffered[]> = new Map();
+    private resyncListeners: Set<(roomId: string) => void> = new Set();
     private reconnectAttempts = 0;
     private maxReconnectAttempts = 5;
     private reconnectDelay = 3000;
@@ -26,6 +79,11 @@ class StompClient {
                 console.log('STOMP connected');
                 this.reconnectAttempts = 0;
                 this.isConnecting = false;
+                this.client!.subscribe(REPLAY_DESTINATION, (message) => this.applyReplay(JSON.parse(message.body)));
+                if (this.hasConnected) {
+                    this.resumeRooms();
+                }
+                this.hasConnected = true;
             },
 
             onDisconnect: () => {
@@ -111,18 +169,131 @@ class StompClient {
             throw new Error('STOMP client is not connected');
         }
 
-        const subscription = this.client.subscribe(destination, callback, headers);
-        const subscriptionId = subscription.id;
-        this.subscriptions.set(subscriptionId, subscription);
+        const subscriptionId = `sub-${++this.nextSubscriptionId}`;
+        this.registrations.set(subscriptionId, {
+            destination,
+            callback,
+            headers,
+            subscription: this.client.subscribe(destination, (message) => this.deliver(callback, message), headers),
+        });
 
         return subscriptionId;
     }
 
     unsubscribe(subscriptionId: string): void {
-        const subscription = this.subscriptions.get(subscriptionId);
-        if (subscription) {
-            subscription.unsubscribe();
-            this.subscriptions.delete(subscriptionId);
+        const registration = this.registrations.get(subscriptionId);
+        if (registration) {
+            if (this.client?.connected) {
+                registration.subscription.unsubscribe();
+            }
+            this.registrations.delete(subscriptionId);
+        }
+    }
+
+    /**
+     * Called with a room whose missed broadcasts could not be replayed after a
+     * reconnect; the listener reloads what it shows of the room.
+     */
+    onRoomResync(listener: (roomId: string) => void): () => void {
+        this.resyncListeners.add(listener);
+        return () => {
+            this.resyncListeners.delete(listener);
+        };
+    }
+
+    private deliver(callback: (message: IMessage) => void, message: IMessage) {
+        const destination = message.headers['destination'] ?? '';
+        const roomId = roomOf(destination);
+        const sequence = Number(message.headers['seq']);
+        if (!roomId || !sequence) {
+            callback(message);
+            return;
+        }
+        const buffered = this.resuming.get(roomId);
+        if (buffered) {
+            buffered.push({ sequence, destination, callback, message });
+            return;
+        }
+        // Several subscriptions may share a destination: only skip what is older
+        if (sequence < (this.topicSequences.get(destination) ?? 0)) {
+            return;
+        }
+        this.track(roomId, destination, sequence);
+        callback(message);
+    }
+
+    private track(roomId: string, destination: string, sequence: number) {
+        this.topicSequences.set(destination, Math.max(sequence, this.topicSequences.get(destination) ?? 0));
+        this.lastSequences.set(roomId, Math.max(sequence, this.lastSequences.get(roomId) ?? 0));
+    }
+
+    private topicsOf(roomId: string): Record<string, number> {
+        const topics: Record<string, number> = {};
+        this.topicSequences.forEach((sequence, destination) => {
+            if (roomOf(destination) === roomId) {
+                topics[destination] = sequence;
+            }
+        });
+        return topics;
+    }
+
+    /**
+     * Restore the subscriptions of the old socket and ask each of their rooms for
+     * the broadcasts missed meanwhile (this also rejoins its presence).
+     */
+    private resumeRooms() {
+        const rooms = new Set<string>();
+        this.registrations.forEach((registration) => {
+            registration.subscription = this.client!.subscribe(registration.destination,
+                (message) => this.deliver(registration.callback, message), registration.headers);
+            const roomId = roomOf(registration.destination);
+            if (roomId) {
+                rooms.add(roomId);
+            }
+        });
+        rooms.forEach((roomId) => {
+            this.resuming.set(roomId, []);
+            this.publish('/app/presence.resume', {
+                roomId,
+                lastSequence: this.lastSequences.get(roomId) ?? 0,
+                topics: this.topicsOf(roomId),
+            });
+        });
+    }
+
+    private applyReplay(replay: ReplayMessage) {
+        const buffered = this.resuming.get(replay.roomId) ?? [];
+        this.resuming.delete(replay.roomId);
+
+        if (replay.complete) {
+            for (const missed of replay.messages) {
+                if (missed.sequence <= (this.topicSequences.get(missed.destination) ?? 0)) {
+                    continue;
+                }
+                const message = replayedFrame(missed.destination, missed.sequence, missed.payload);
+                this.registrations.forEach((registration) => {
+                    if (registration.destination === missed.destination) {
+                        registration.callback(message);
+                    }
+                });
+                this.track(replay.roomId, missed.destination, missed.sequence);
+            }
+        } else {
+            // The room is reloaded as of replay.sequence, which may come from another node's count
+            Object.keys(this.topicsOf(replay.roomId)).forEach((destination) =>
+                this.topicSequences.set(destination, replay.sequence));
+            this.lastSequences.set(replay.roomId, replay.sequence);
+            this.resyncListeners.forEach((listener) => listener(replay.roomId));
+        }
+
+        // Taken before delivering: held copies for several subscriptions share a number
+        const floors = new Map(this.topicSequences);
+        const floor = replay.complete ? 0 : replay.sequence;
+        for (const held of buffered) {
+            if (held.sequence > (floors.get(held.destination) ?? floor)) {
+                held.callback(held.message);
+                this.track(replay.roomId, held.destination, held.sequence);
+            }
         }
     }
 
@@ -148,10 +319,14 @@ class StompClient {
     disconnect(): void {
         if (this.client && this.client.active) {
             // Unsubscribe from all subscriptions
-            this.subscriptions.forEach((subscription) => {
-                subscription.unsubscribe();
+            this.registrations.forEach((registration) => {
+                registration.subscription.unsubscribe();
             });
-            this.subscriptions.clear();
+            this.registrations.clear();
+            this.lastSequences.clear();
+            this.topicSequences.clear();
+            this.resuming.clear();
+            this.hasConnected = false;
 
             this.client.deactivate();
         }
@@ -9,6 +9,18 @@ import { AppDispatch, RootState } from '../../store/store';
 import { updateFileContent, updateFileLocal, updateFileContentFromSocket } from '../../features/files/filesSlice';
 import { useStomp } from '../../hooks/useStomp';
 import { Save, Clock } from 'lucide-react';
+import { IMessage } from '@stomp/stompjs';
+
+// Join snapshots of large files may arrive as deflated JSON when we ask for it
+const canInflate = typeof DecompressionStream !== 'undefined';
+
+const readSyncMessage = async (message: IMessage) => {
+    if (message.headers['content-encoding'] !== 'deflate') {
+        return JSON.parse(message.body);
+    }
+    const stream = new Blob([message.binaryBody]).stream().pipeThrough(new DecompressionStream('deflate'));
+    return JSON.parse(await new Response(stream).text());
+};
 
 export const CodeEditor: React.FC = () => {
     const { roomId } = useParams<{ roomId: string }>();
@@ -26,6 +38,7 @@ export const CodeEditor: React.FC = () => {
     // Refs for socket management
     const subscriptionRef = useRef<(() => void) | null>(null);
     const prevFileIdRef = useRef<string | null>(null);
+    const revisionRef = useRef<number | null>(null);
     const typingTimeoutRef = useRef<any>(null);
     const socketUpdateTimeoutRef = useRef<any>(null);
     const isTypingRef = useRef(false);
@@ -124,11 +137,36 @@ export const CodeEditor: React.FC = () => {
             const topic = `/topic/room.${roomId}.file.${fileId}.edit`;
             const autoSaveTopic = `/topic/room.${roomId}.file.${fileId}.autosave`;
 
-            const cleanup = subscribe(topic, (message) => {
+            revisionRef.current = null;
+            // Deflated snapshots are read asynchronously: handle file frames one at a
+            // time in arrival order, so an edit is never overwritten by an older snapshot
+            let handling: Promise<unknown> = Promise.resolve();
+            const inOrder = (handle: (message: IMessage) => unknown) => (message: IMessage) => {
+                handling = handling
+                    .then(() => handle(message))
+                    .catch((error) => console.error('Failed to apply file update', error));
+            };
+
+            const cleanup = subscribe(topic, inOrder((message) => {
                 const body = JSON.parse(message.body);
+                revisionRef.current = body.revision ?? null;
                 // Dispatch updates from socket
                 dispatch(updateFileContentFromSocket({ id: fileId, content: body.content }));
-            });
+            }));
+
+            // Snapshots for this session only: the join sync and resyncs
+            const syncCleanup = subscribe('/user/queue/file-sync', inOrder(async (message) => {
+                const body = await readSyncMessage(message);
+                if (body.fileId !== fileId) {
+                    return;
+                }
+                // Revisions only grow, so a snapshot at or below the last one seen is stale
+                if (body.revision != null && revisionRef.current != null && body.revision <= revisionRef.current) {
+                    return;
+                }
+                revisionRef.current = body.revision ?? null;
+                dispatch(updateFileContentFromSocket({ id: fileId, content: body.content }));
+            }));
 
             const autoSaveCleanup = subscribe(autoSaveTopic, (message) => {
                 const body = JSON.parse(message.body);
@@ -139,14 +177,16 @@ export const CodeEditor: React.FC = () => {
 
             subscriptionRef.current = () => {
                 cleanup();
+                syncCleanup();
                 autoSaveCleanup();
             };
 
-            // 3. Join New Room (Triggers backend to send cached content)
+            // 3. Join New Room (Triggers backend to send cached content to this session)
             publish('/app/join-file-room', {
                 roomId,
                 fileId,
-                username: user?.username
+                username: user?.username,
+                ...(canInflate ? { compression: 'deflate' } : {})
             });
 
             prevFileIdRef.current = fileId;
@@ -2,7 +2,7 @@ import React, { useEffect, useState } from 'react';
 import { useDispatch, useSelector } from 'react-redux';
 import { AppDispatch, RootState } from '../../store/store';
 import { fetchFolders, createFolder, deleteFolder, renameFolder } from '../../features/folders/foldersSlice';
-import { fetchFiles, createFile, deleteFile, renameFile, setActiveFile, setFileEditingStatus } from '../../features/files/filesSlice';
+import { fetchFiles, createFile, deleteFile, renameFile, openFile, setFileEditingStatus } from '../../features/files/filesSlice';
 import {
     Folder, File as FileIcon, ChevronRight, ChevronDown,
     FolderPlus, FilePlus, Trash2, Edit2
@@ -179,7 +179,7 @@ export const FileTree: React.FC<FileTreeProps> = ({ roomId }) => {
                                             flex items-center group px-2 py-1.5 cursor-pointer rounded select-none mb-0.5
                                             ${activeFile?.id === file.id ? 'bg-[#37373d] text-white' : 'hover:bg-[#2a2d2e]'}
                                         `}
-                                            onClick={() => dispatch(setActiveFile(file))}
+                                            onClick={() => dispatch(openFile(file))}
                                         >
                                             <FileIcon size={13} className="mr-2 text-gray-400" />
                                             <span className="truncate flex-1 text-sm">{file.name}</span>
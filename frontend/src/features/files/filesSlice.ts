@@ -26,6 +26,14 @@ export const fetchFiles = createAsyncThunk(
     }
 );
 
+// Listings carry metadata only; the content is fetched when a file is opened
+export const openFile = createAsyncThunk(
+    'files/openFile',
+    async (file: FileResponse) => {
+        return await filesApi.getFile(file.id);
+    }
+);
+
 export const createFile = createAsyncThunk(
     'files/createFile',
     async ({ folderId, name }: { folderId: string; name: string }) => {
@@ -122,19 +130,26 @@ const filesSlice = createSlice({
             .addCase(fetchFiles.fulfilled, (state, action) => {
                 state.files[action.payload.folderId] = action.payload.files;
             })
+            .addCase(openFile.pending, (state, action) => {
+                state.activeFile = action.meta.arg;
+            })
+            .addCase(openFile.fulfilled, (state, action) => {
+                if (state.activeFile?.id === action.payload.id) state.activeFile = action.payload;
+            })
             .addCase(createFile.fulfilled, (state, action) => {
                 const file = action.payload;
                 if (!state.files[file.folderId]) state.files[file.folderId] = [];
                 state.files[file.folderId].push(file);
             })
             .addCase(renameFile.fulfilled, (state, action) => {
+                // A rename does not return the content; keep what is already loaded
                 const file = action.payload;
                 const list = state.files[file.folderId];
                 if (list) {
                     const idx = list.findIndex(f => f.id === file.id);
-                    if (idx !== -1) list[idx] = file;
+                    if (idx !== -1) list[idx] = { ...file, content: list[idx].content };
                 }
-                if (state.activeFile?.id === file.id) state.activeFile = file;
+                if (state.activeFile?.id === file.id) state.activeFile = { ...file, content: state.activeFile.content };
             })
             .addCase(updateFileContent.fulfilled, () => {
                 // Content updated
@@ -8,18 +8,34 @@ import ChatArea from '../components/Chat/ChatArea';
 import { Share2, Users, MessageSquare, Settings } from 'lucide-react';
 import { ErrorBoundary } from '../components/ErrorBoundary';
 import { useStomp } from '../hooks/useStomp';
+import stompClient from '../api/stompClient';
+import { useAppDispatch, useAppSelector } from '../store/hooks';
+import { fetchFolders } from '../features/folders/foldersSlice';
 
 const RoomPage: React.FC = () => {
     const { roomId } = useParams<{ roomId: string }>();
     const navigate = useNavigate();
     const [activeTab, setActiveTab] = useState<'chat' | 'presence'>('presence');
-    const { connect, isConnected } = useStomp();
+    const { connect, isConnected, publish } = useStomp();
+    const dispatch = useAppDispatch();
+    const activeFileId = useAppSelector((state) => state.files.activeFile?.id);
 
     // Initialize WebSocket connection on mount
     useEffect(() => {
         connect();
     }, [connect]);
 
+    // After a reconnect, missed broadcasts are replayed; reload only when they were not kept
+    useEffect(() => {
+        return stompClient.onRoomResync((resyncedRoomId) => {
+            if (!roomId || resyncedRoomId !== roomId) return;
+            dispatch(fetchFolders(roomId));
+            if (activeFileId) {
+                publish('/app/join-file-room', { roomId, fileId: activeFileId });
+            }
+        });
+    }, [roomId, activeFileId, dispatch, publish]);
+
     const { usersOnline } = usePresence();
 
     return (
@@ -10,7 +10,7 @@ export interface FileResponse {
     id: string;
     folderId: string;
     name: string;
-    content: string;
+    content: string | null;
     createdAt: string;
     updatedAt: string;
 }